@@ -0,0 +1,80 @@
+package com.library.api.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.api.api.dto.BookDTO;
+import com.library.api.api.mapper.BookMapper;
+import com.library.api.api.mapper.CompiledBookMapper;
+import com.library.api.api.mapper.ModelMapperBookMapper;
+import com.library.api.model.Book;
+import com.library.api.service.search.CountStrategy;
+import com.library.api.service.search.CountedPage;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+//o que o BookController.findBook faz depois do service: mapear a pagina para DTO e serializar em JSON
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookPageBenchmark {
+
+    @Param({"COMPILED", "MODELMAPPER"})
+    public String mappingMode;
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    private BookMapper mapper;
+    private ObjectMapper objectMapper;
+    private CountedPage<Book> page;
+    private CountedPage<BookDTO> dtoPage;
+
+    @Setup
+    public void setUp() {
+        mapper = "MODELMAPPER".equals(mappingMode)
+                ? new ModelMapperBookMapper(new ModelMapper())
+                : Mappers.getMapper(CompiledBookMapper.class);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<Book> books = new ArrayList<>(pageSize);
+        for (long i = 1; i <= pageSize; i++) {
+            books.add(Book.builder().id(i).title("titulo " + i).author("autor " + i).isbn("isbn-" + i).build());
+        }
+        page = new CountedPage<>(books, PageRequest.of(0, pageSize), 10_000, CountStrategy.EXACT, true);
+        dtoPage = toDtoPage();
+    }
+
+    @Benchmark
+    public CountedPage<BookDTO> mapPage() {
+        return toDtoPage();
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws Exception {
+        return objectMapper.writeValueAsBytes(dtoPage);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerializePage() throws Exception {
+        return objectMapper.writeValueAsBytes(toDtoPage());
+    }
+
+    private CountedPage<BookDTO> toDtoPage() {
+        List<BookDTO> list = page.getContent()
+                .stream()
+                .map(mapper::toDto)
+                .collect(Collectors.toList());
+        return new CountedPage<>(list, page.getPageable(), page.getTotalElements(),
+                page.getCountStrategy(), page.isTotalExact());
+    }
+}
@@ -0,0 +1,120 @@
+package com.library.api.benchmark;
+
+import com.library.api.ApiApplication;
+import com.library.api.model.Book;
+import com.library.api.model.repository.BookView;
+import com.library.api.service.BookService;
+import com.library.api.service.search.BookSearchIndex;
+import com.library.api.service.search.CountStrategy;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * BookServiceImpl contra um H2 em memoria com 10k ou 1M livros.
+ * Titulo "titulo <n>", autor "autor <n % 1000>" e isbn "isbn-<n>": a busca por "autor 123"
+ * devolve um livro a cada mil.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BookServiceBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int books;
+
+    @Param({"INDEX", "EXAMPLE"})
+    public String searchMode;
+
+    private ConfigurableApplicationContext context;
+    private BookService service;
+    private final AtomicLong inserted = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        //argumentos de linha de comando: properties() so define defaults, e o application.properties venceria
+        context = new SpringApplicationBuilder(ApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.devtools.restart.enabled=false",
+                        "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--logging.level.root=WARN",
+                        "--library.search.mode=" + searchMode);
+        service = context.getBean(BookService.class);
+
+        seed(context.getBean(JdbcTemplate.class), books);
+
+        //o indice carrega em background depois do ApplicationReadyEvent; recarrega com os livros do seed
+        BookSearchIndex index = context.getBean(BookSearchIndex.class);
+        if ("INDEX".equals(searchMode)) {
+            index.warmup();
+            while (!index.isReady()) {
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    //ids 1..n direto no insert; a sequence recomeca depois da janela do pooled optimizer
+    static void seed(JdbcTemplate jdbc, int books) {
+        jdbc.update("insert into book (id, title, author, isbn, version) " +
+                "select x, concat('titulo ', x), concat('autor ', mod(x, 1000)), concat('isbn-', x), 0 " +
+                "from system_range(1, ?)", books);
+        jdbc.execute("alter sequence book_seq restart with " + (books + 1000));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Book> getById() {
+        return service.getById(ThreadLocalRandom.current().nextLong(1, books + 1));
+    }
+
+    @Benchmark
+    public Optional<Book> getBookByIsbn() {
+        return service.getBookByIsbn("isbn-" + ThreadLocalRandom.current().nextLong(1, books + 1));
+    }
+
+    @Benchmark
+    public Page<Book> find() {
+        Book filter = Book.builder().author("autor " + ThreadLocalRandom.current().nextInt(100, 1000)).build();
+        return service.find(filter, PageRequest.of(0, 20));
+    }
+
+    //paginas grandes: entidades gerenciadas vs projecoes (compare gc.alloc.rate.norm com -prof gc)
+    @Benchmark
+    public Page<Book> findLargePage() {
+        return service.find(largePageFilter(), PageRequest.of(0, 500), CountStrategy.ESTIMATED);
+    }
+
+    @Benchmark
+    public Page<BookView> findViewsLargePage() {
+        return service.findViews(largePageFilter(), PageRequest.of(0, 500), CountStrategy.ESTIMATED);
+    }
+
+    //"autor 1" casa com autor 1, 10..19 e 100..199: 111 livros a cada mil
+    private static Book largePageFilter() {
+        return Book.builder().author("autor " + ThreadLocalRandom.current().nextInt(1, 10)).build();
+    }
+
+    @Benchmark
+    public Book save() {
+        long n = inserted.incrementAndGet();
+        return service.save(Book.builder().title("novo " + n).author("renato").isbn("bench-" + n).build());
+    }
+}
@@ -0,0 +1,60 @@
+package com.library.api.benchmark;
+
+import com.library.api.api.dto.BookDTO;
+import com.library.api.api.mapper.BookMapper;
+import com.library.api.api.mapper.CompiledBookMapper;
+import com.library.api.api.mapper.ModelMapperBookMapper;
+import com.library.api.model.Book;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//ModelMapper (reflexivo) x MapStruct (gerado) no mapeamento de uma pagina do findBook
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"COMPILED", "MODELMAPPER"})
+    public String mode;
+
+    @Param({"1", "100"})
+    public int pageSize;
+
+    private BookMapper mapper;
+    private List<Book> page;
+    private BookDTO dto;
+
+    @Setup
+    public void setUp() {
+        mapper = "MODELMAPPER".equals(mode)
+                ? new ModelMapperBookMapper(new ModelMapper())
+                : Mappers.getMapper(CompiledBookMapper.class);
+
+        page = new ArrayList<>(pageSize);
+        for (long i = 1; i <= pageSize; i++) {
+            page.add(Book.builder().id(i).title("as aventuras " + i).author("renato").isbn("isbn-" + i).build());
+        }
+        dto = BookDTO.builder().title("as aventuras").author("renato").isbn("123").build();
+    }
+
+    @Benchmark
+    public void toDto(Blackhole blackhole) {
+        for (Book book : page) {
+            blackhole.consume(mapper.toDto(book));
+        }
+    }
+
+    @Benchmark
+    public Book toEntity() {
+        return mapper.toEntity(dto);
+    }
+}
@@ -1,16 +1,27 @@
 package com.library.api;
 
+import com.library.api.api.idempotency.IdempotencyStore;
+import com.library.api.api.idempotency.InMemoryIdempotencyStore;
+import com.library.api.api.mapper.*;
+import com.library.api.model.cache.SecondLevelCacheRegions;
+import org.mapstruct.factory.Mappers;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.context.annotation.Bean;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import javax.sql.DataSource;
+import java.time.Duration;
+
 @SpringBootApplication
+@EnableScheduling
 public class ApiApplication {
 
 	@Bean
@@ -18,6 +29,36 @@ public class ApiApplication {
 		return new ModelMapper();
 	}
 
+	//library.mapping.mode=MODELMAPPER volta para o mapeamento reflexivo
+	@Bean
+	public BookMapper bookMapper(ModelMapper modelMapper, @Value("${library.mapping.mode:COMPILED}") MappingMode mode){
+		return mode == MappingMode.MODELMAPPER
+				? new ModelMapperBookMapper(modelMapper)
+				: Mappers.getMapper(CompiledBookMapper.class);
+	}
+
+	@Bean
+	public LoanMapper loanMapper(ModelMapper modelMapper, @Value("${library.mapping.mode:COMPILED}") MappingMode mode){
+		return mode == MappingMode.MODELMAPPER
+				? new ModelMapperLoanMapper(modelMapper)
+				: Mappers.getMapper(CompiledLoanMapper.class);
+	}
+
+	//regioes do cache de segundo nivel do Hibernate (livros por id e por isbn)
+	@Bean
+	public SecondLevelCacheRegions secondLevelCacheRegions(@Value("${library.l2-cache.entity.max-size:10000}") long entityMaxSize,
+														   @Value("${library.l2-cache.entity.ttl:10m}") Duration entityTtl){
+		return new SecondLevelCacheRegions(entityMaxSize, entityTtl);
+	}
+
+	//respostas de Idempotency-Key em memoria; um IdempotencyStore proprio (ex.: JDBC) substitui este
+	@Bean
+	@ConditionalOnMissingBean(IdempotencyStore.class)
+	public IdempotencyStore idempotencyStore(@Value("${library.idempotency.max-size:100000}") long maxSize,
+											 @Value("${library.idempotency.ttl:24h}") Duration ttl){
+		return new InMemoryIdempotencyStore(maxSize, ttl);
+	}
+
 	public static void main(String[] args) {
 		SpringApplication.run(ApiApplication.class, args);
 	}
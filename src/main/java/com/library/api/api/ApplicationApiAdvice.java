@@ -2,6 +2,9 @@ package com.library.api.api;
 
 import com.library.api.exceptions.ApiErrors;
 import com.library.api.exceptions.BusinessException;
+import com.library.api.exceptions.OverloadedException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -28,6 +31,21 @@ public class ApplicationApiAdvice {
         return new ApiErrors(ex);
     }
 
+    //If-Match com versao antiga, ou livro alterado entre a leitura e o update
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ApiErrors handleOptimisticLockingFailure(OptimisticLockingFailureException ex){
+        return new ApiErrors("livro alterado por outra requisição");
+    }
+
+    //recusada pelo controle de admissao: o cliente tenta de novo depois de Retry-After segundos
+    @ExceptionHandler(OverloadedException.class)
+    public ResponseEntity<ApiErrors> handleOverloaded(OverloadedException ex){
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().getSeconds())))
+                .body(new ApiErrors(ex.getMessage()));
+    }
+
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity handleResponseStatusException(ResponseStatusException ex){
         return  new ResponseEntity( new ApiErrors(ex), ex.getStatus());
@@ -0,0 +1,27 @@
+package com.library.api.api.admission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+//library.admission.enabled=false desliga o controle de admissao
+@Configuration
+public class AdmissionControlConfig implements WebMvcConfigurer {
+
+    private final AdmissionControlInterceptor interceptor;
+    private final boolean enabled;
+
+    public AdmissionControlConfig(AdmissionControlInterceptor interceptor,
+                                  @Value("${library.admission.enabled:true}") boolean enabled) {
+        this.interceptor = interceptor;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (enabled) {
+            registry.addInterceptor(interceptor).addPathPatterns("/api/**");
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.library.api.api.admission;
+
+import com.library.api.exceptions.OverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/*
+ * Controle de admissao na frente dos controllers: um AimdLimiter por grupo de endpoints (WRITE, READ,
+ * SEARCH, BULK). Alem do proprio limite, um grupo so entra se nenhum grupo mais prioritario estiver
+ * congestionado, entao buscas caras sao recusadas antes de atrapalhar emprestimos. A recusa e uma
+ * OverloadedException (503 + Retry-After no ApplicationApiAdvice), antes de tocar no banco.
+ */
+@Component
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT = AdmissionControlInterceptor.class.getName() + ".permit";
+
+    private final Map<EndpointGroup, AimdLimiter> limiters = new EnumMap<>(EndpointGroup.class);
+    private final Map<EndpointGroup, Counter> rejected = new EnumMap<>(EndpointGroup.class);
+    private final Duration retryAfter;
+
+    public AdmissionControlInterceptor(ObjectProvider<MeterRegistry> meterRegistry,
+                                       @Value("${library.admission.initial-limit:50}") int initialLimit,
+                                       @Value("${library.admission.min-limit:4}") int minLimit,
+                                       @Value("${library.admission.max-limit:200}") int maxLimit,
+                                       @Value("${library.admission.backoff-ratio:0.9}") double backoffRatio,
+                                       @Value("${library.admission.congested-at:0.8}") double congestedAt,
+                                       @Value("${library.admission.retry-after:1s}") Duration retryAfter,
+                                       @Value("${library.admission.latency-target.write:250ms}") Duration writeTarget,
+                                       @Value("${library.admission.latency-target.read:100ms}") Duration readTarget,
+                                       @Value("${library.admission.latency-target.search:500ms}") Duration searchTarget,
+                                       @Value("${library.admission.bulk-limit:2}") int bulkLimit) {
+        this.retryAfter = retryAfter;
+        Map<EndpointGroup, Duration> targets = new EnumMap<>(EndpointGroup.class);
+        targets.put(EndpointGroup.WRITE, writeTarget);
+        targets.put(EndpointGroup.READ, readTarget);
+        targets.put(EndpointGroup.SEARCH, searchTarget);
+
+        //sem MeterRegistry no contexto (testes de controller) as metricas ficam num registry local
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        for (EndpointGroup group : EndpointGroup.values()) {
+            //importacao/exportacao levam segundos ou minutos: pela latencia o limite so cairia, entao BULK fica fixo
+            AimdLimiter limiter = group == EndpointGroup.BULK
+                    ? new AimdLimiter(Long.MAX_VALUE, bulkLimit, bulkLimit, bulkLimit, backoffRatio, congestedAt)
+                    : new AimdLimiter(targets.get(group).toNanos(), initialLimit, minLimit, maxLimit,
+                            backoffRatio, congestedAt);
+            limiters.put(group, limiter);
+            String tag = group.name().toLowerCase();
+            Gauge.builder("admission.limit", limiter, AimdLimiter::getLimit)
+                    .description("requisicoes simultaneas aceitas no grupo")
+                    .tag("group", tag)
+                    .register(registry);
+            Gauge.builder("admission.inflight", limiter, AimdLimiter::getInFlight)
+                    .description("requisicoes em andamento no grupo")
+                    .tag("group", tag)
+                    .register(registry);
+            rejected.put(group, Counter.builder("admission.rejected")
+                    .description("requisicoes recusadas com 503")
+                    .tag("group", tag)
+                    .register(registry));
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        //o dispatch de volta de uma requisicao async ja passou pela admissao
+        if (request.getDispatcherType() == DispatcherType.ASYNC || !(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        EndpointGroup group = groupOf(request, (HandlerMethod) handler);
+        for (EndpointGroup higher : EndpointGroup.values()) {
+            if (higher.ordinal() < group.ordinal() && limiters.get(higher).isCongested()) {
+                throw reject(group);
+            }
+        }
+        if (!limiters.get(group).tryAcquire()) {
+            throw reject(group);
+        }
+        request.setAttribute(PERMIT, new Permit(group, System.nanoTime()));
+        return true;
+    }
+
+    /*
+     * Async (exportacao em streaming): o afterCompletion do primeiro dispatch nao roda e a vaga continua
+     * presa ao request (atributo PERMIT) ate o afterCompletion do dispatch ASYNC, depois do ultimo byte
+     * escrito. Assim o limite conta os cursores abertos e a latencia registrada e a do streaming inteiro.
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        release(request);
+    }
+
+    private void release(HttpServletRequest request) {
+        Permit permit = (Permit) request.getAttribute(PERMIT);
+        if (permit == null) {
+            return;
+        }
+        request.removeAttribute(PERMIT);
+        limiters.get(permit.group).release(System.nanoTime() - permit.startedAt);
+    }
+
+    private OverloadedException reject(EndpointGroup group) {
+        rejected.get(group).increment();
+        return new OverloadedException("servidor sobrecarregado, tente novamente", retryAfter);
+    }
+
+    private static EndpointGroup groupOf(HttpServletRequest request, HandlerMethod handler) {
+        AdmissionGroup annotation = handler.getMethodAnnotation(AdmissionGroup.class);
+        if (annotation != null) {
+            return annotation.value();
+        }
+        return HttpMethod.GET.matches(request.getMethod()) ? EndpointGroup.READ : EndpointGroup.WRITE;
+    }
+
+    private static class Permit {
+        private final EndpointGroup group;
+        private final long startedAt;
+
+        Permit(EndpointGroup group, long startedAt) {
+            this.group = group;
+            this.startedAt = startedAt;
+        }
+    }
+}
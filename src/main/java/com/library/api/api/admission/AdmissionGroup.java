@@ -0,0 +1,14 @@
+package com.library.api.api.admission;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//grupo do endpoint no controle de admissao; sem a anotacao GET e READ e o resto e WRITE
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AdmissionGroup {
+
+    EndpointGroup value();
+}
@@ -0,0 +1,62 @@
+package com.library.api.api.admission;
+
+/*
+ * Limite de requisicoes simultaneas ajustado pela latencia (AIMD): cada requisicao que termina
+ * acima de latencyTarget multiplica o limite por backoffRatio; abaixo do alvo, com pelo menos
+ * metade do limite em uso, o limite sobe 1. Quando o banco fica lento o limite cai e o excesso
+ * e recusado na entrada, em vez de esperar por threads e conexoes.
+ */
+class AimdLimiter {
+
+    private final long latencyTargetNanos;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double congestedAt;
+
+    private double limit;
+    private int inFlight;
+
+    AimdLimiter(long latencyTargetNanos, int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                double congestedAt) {
+        this.latencyTargetNanos = latencyTargetNanos;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.congestedAt = congestedAt;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    synchronized void release(long latencyNanos) {
+        inFlight--;
+        if (latencyNanos > latencyTargetNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlight * 2 >= (int) limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    /*
+     * Pouca folga: congestedAt do limite ja em uso. Com o banco lento o limite encolhe e as
+     * requisicoes acumulam, entao o grupo chega aqui antes de comecar a recusar.
+     */
+    synchronized boolean isCongested() {
+        return inFlight >= Math.max(1, (int) (limit * congestedAt));
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+}
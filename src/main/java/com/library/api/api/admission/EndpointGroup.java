@@ -0,0 +1,14 @@
+package com.library.api.api.admission;
+
+//grupos de endpoints, do mais para o menos prioritario
+public enum EndpointGroup {
+    //criacao, alteracao e devolucao (emprestimos inclusive)
+    WRITE,
+    //leituras por chave: livro por id, lote, historico de emprestimos
+    READ,
+    //buscas por filtro: as mais caras entre as interativas
+    SEARCH,
+    //importacao e exportacao do catalogo: lentas por natureza, com limite fixo (fora do ajuste pela latencia)
+    //e as primeiras a serem recusadas
+    BULK
+}
@@ -0,0 +1,19 @@
+package com.library.api.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+//resposta do GET /api/books/batch: livros na ordem pedida e as chaves que nao existem
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBatchDTO {
+    private List<BookDTO> content;
+    private List<Long> missingIds;
+    private List<String> missingIsbns;
+}
@@ -0,0 +1,18 @@
+package com.library.api.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+//lote de devolucoes: ids dos emprestimos e/ou isbns dos livros emprestados
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanReturnDTO {
+    private List<Long> ids;
+    private List<String> isbns;
+}
@@ -0,0 +1,261 @@
+package com.library.api.api.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.api.exceptions.ApiErrors;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/*
+ * Idempotency-Key nos POSTs de criacao (library.idempotency.paths). A primeira requisicao com a chave
+ * executa e a resposta de sucesso (2xx) fica no IdempotencyStore; repeticoes recebem a mesma resposta
+ * com Idempotency-Replayed: true, sem passar pelo controller. Erros nao ficam guardados: nao criaram nada,
+ * e varios sao passageiros ("try again"), entao a repeticao executa de novo. Uma repeticao que chega com a
+ * original ainda em andamento nesta instancia espera o resultado dela em vez de executar de novo.
+ * A mesma chave com outro corpo e recusada (422).
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotency-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final Set<String> paths;
+    private final long waitTimeoutMillis;
+    private final ConcurrentMap<String, CompletableFuture<Optional<IdempotentResponse>>> inFlight =
+            new ConcurrentHashMap<>();
+
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter waited;
+    private final Counter rejected;
+
+    //sem MeterRegistry no contexto (testes de controller) as contagens ficam num registry local
+    @Autowired
+    public IdempotencyFilter(IdempotencyStore store, ObjectMapper objectMapper, ObjectProvider<MeterRegistry> meterRegistry,
+                             @Value("${library.idempotency.paths:/api/books,/api/loans}") List<String> paths,
+                             @Value("${library.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this(store, objectMapper, meterRegistry.getIfAvailable(SimpleMeterRegistry::new), paths, waitTimeout);
+    }
+
+    public IdempotencyFilter(IdempotencyStore store, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                             List<String> paths, Duration waitTimeout) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.paths = new HashSet<>(paths);
+        this.waitTimeoutMillis = waitTimeout.toMillis();
+        this.executed = counter(meterRegistry, "executed");
+        this.replayed = counter(meterRegistry, "replayed");
+        this.waited = counter(meterRegistry, "waited");
+        this.rejected = counter(meterRegistry, "rejected");
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("idempotency.requests")
+                .description("requisicoes com Idempotency-Key por resultado")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || request.getHeader(KEY_HEADER) == null
+                || !paths.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(KEY_HEADER).trim();
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            rejected.increment();
+            error(response, HttpStatus.BAD_REQUEST, "Idempotency-Key inválida");
+            return;
+        }
+        byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+        String key = request.getMethod() + " " + request.getRequestURI() + " " + idempotencyKey;
+        String fingerprint = DigestUtils.md5DigestAsHex(body);
+
+        while (true) {
+            Optional<IdempotentResponse> stored = store.find(key);
+            if (stored.isPresent()) {
+                replay(stored.get(), fingerprint, response);
+                return;
+            }
+            CompletableFuture<Optional<IdempotentResponse>> mine = new CompletableFuture<>();
+            CompletableFuture<Optional<IdempotentResponse>> running = inFlight.putIfAbsent(key, mine);
+            if (running == null) {
+                execute(key, fingerprint, new BufferedRequest(request, body), response, chain, mine);
+                return;
+            }
+            Optional<IdempotentResponse> result = await(running);
+            if (result == null) {
+                rejected.increment();
+                error(response, HttpStatus.CONFLICT, "requisição com a mesma Idempotency-Key em andamento");
+                return;
+            }
+            if (result.isPresent()) {
+                waited.increment();
+                replay(result.get(), fingerprint, response);
+                return;
+            }
+            //a original falhou sem resposta guardada: esta tenta executar
+        }
+    }
+
+    private void execute(String key, String fingerprint, HttpServletRequest request, HttpServletResponse response,
+                         FilterChain chain, CompletableFuture<Optional<IdempotentResponse>> mine)
+            throws ServletException, IOException {
+        Optional<IdempotentResponse> result = Optional.empty();
+        try {
+            //a original pode ter terminado entre a consulta ao store e a reserva da chave
+            Optional<IdempotentResponse> stored = store.find(key);
+            if (stored.isPresent()) {
+                result = stored;
+                replay(stored.get(), fingerprint, response);
+                return;
+            }
+            executed.increment();
+            ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+            chain.doFilter(request, wrapper);
+            if (HttpStatus.valueOf(wrapper.getStatus()).is2xxSuccessful()) {
+                IdempotentResponse completed = new IdempotentResponse(fingerprint, wrapper.getStatus(),
+                        wrapper.getContentType(), wrapper.getContentAsByteArray());
+                store.save(key, completed);
+                result = Optional.of(completed);
+            }
+            wrapper.copyBodyToResponse();
+        } finally {
+            inFlight.remove(key, mine);
+            mine.complete(result);
+        }
+    }
+
+    //null quando a original nao termina dentro de waitTimeout
+    private Optional<IdempotentResponse> await(CompletableFuture<Optional<IdempotentResponse>> running)
+            throws IOException {
+        try {
+            return running.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("espera pela requisição original interrompida");
+        } catch (ExecutionException ex) {
+            return Optional.empty();
+        }
+    }
+
+    private void replay(IdempotentResponse stored, String fingerprint, HttpServletResponse response) throws IOException {
+        if (!stored.getFingerprint().equals(fingerprint)) {
+            rejected.increment();
+            error(response, HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key já usada com outra requisição");
+            return;
+        }
+        replayed.increment();
+        response.setStatus(stored.getStatus());
+        if (stored.getContentType() != null) {
+            response.setContentType(stored.getContentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.getBody().length);
+        response.getOutputStream().write(stored.getBody());
+    }
+
+    private void error(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ApiErrors(message));
+    }
+
+    //o corpo ja foi lido para o fingerprint; o controller le a copia
+    private static class BufferedRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        BufferedRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                //leitura nao bloqueante: o corpo inteiro ja esta em memoria, entao avisa na hora
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            listener.onAllDataRead();
+                        }
+                    } catch (IOException ex) {
+                        listener.onError(ex);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+    }
+}
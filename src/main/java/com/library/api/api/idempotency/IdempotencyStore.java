@@ -0,0 +1,15 @@
+package com.library.api.api.idempotency;
+
+import java.util.Optional;
+
+/*
+ * Onde ficam as respostas ja concluidas, por chave (metodo + caminho + Idempotency-Key).
+ * A implementacao padrao e em memoria, por instancia; um bean proprio (ex.: tabela via JDBC)
+ * substitui a padrao e faz a repeticao funcionar entre instancias.
+ */
+public interface IdempotencyStore {
+
+    Optional<IdempotentResponse> find(String key);
+
+    void save(String key, IdempotentResponse response);
+}
@@ -0,0 +1,17 @@
+package com.library.api.api.idempotency;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+//resposta concluida de uma requisicao com Idempotency-Key; fingerprint identifica o corpo que a gerou
+@Getter
+@AllArgsConstructor
+public class IdempotentResponse implements Serializable {
+
+    private final String fingerprint;
+    private final int status;
+    private final String contentType;
+    private final byte[] body;
+}
@@ -0,0 +1,11 @@
+package com.library.api.api.mapper;
+
+import com.library.api.api.dto.BookDTO;
+import com.library.api.model.Book;
+
+public interface BookMapper {
+
+    BookDTO toDto(Book book);
+
+    Book toEntity(BookDTO dto);
+}
@@ -0,0 +1,23 @@
+package com.library.api.api.mapper;
+
+import com.library.api.api.dto.BookDTO;
+import com.library.api.model.Book;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+//implementacao gerada em CompiledBookMapperImpl pelo mapstruct-processor
+@Mapper
+public interface CompiledBookMapper extends BookMapper {
+
+    @Override
+    BookDTO toDto(Book book);
+
+    @Override
+    @Mapping(target = "version", ignore = true)
+    Book toEntity(BookDTO dto);
+
+    //id 0 do BookDTO (long) e livro novo: vira null para o save fazer persist e nao merge
+    default Long toEntityId(long id) {
+        return id == 0L ? null : id;
+    }
+}
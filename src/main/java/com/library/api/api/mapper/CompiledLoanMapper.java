@@ -0,0 +1,22 @@
+package com.library.api.api.mapper;
+
+import com.library.api.api.dto.LoanDTO;
+import com.library.api.model.Loan;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper
+public interface CompiledLoanMapper extends LoanMapper {
+
+    @Override
+    @Mapping(target = "isbn", source = "book.isbn")
+    LoanDTO toDto(Loan loan);
+
+    @Override
+    @Mapping(target = "book", ignore = true)
+    @Mapping(target = "loanDate", ignore = true)
+    @Mapping(target = "returned", ignore = true)
+    @Mapping(target = "activeBookId", ignore = true)
+    @Mapping(target = "overdue", ignore = true)
+    Loan toEntity(LoanDTO dto);
+}
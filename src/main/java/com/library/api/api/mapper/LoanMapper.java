@@ -0,0 +1,12 @@
+package com.library.api.api.mapper;
+
+import com.library.api.api.dto.LoanDTO;
+import com.library.api.model.Loan;
+
+public interface LoanMapper {
+
+    LoanDTO toDto(Loan loan);
+
+    //o livro e resolvido pelo isbn no controller
+    Loan toEntity(LoanDTO dto);
+}
@@ -0,0 +1,8 @@
+package com.library.api.api.mapper;
+
+public enum MappingMode {
+    //mappers gerados pelo MapStruct na compilacao, sem reflexao por chamada
+    COMPILED,
+    //ModelMapper reflexivo, como era antes
+    MODELMAPPER
+}
@@ -0,0 +1,24 @@
+package com.library.api.api.mapper;
+
+import com.library.api.api.dto.BookDTO;
+import com.library.api.model.Book;
+import org.modelmapper.ModelMapper;
+
+public class ModelMapperBookMapper implements BookMapper {
+
+    private final ModelMapper modelMapper;
+
+    public ModelMapperBookMapper(ModelMapper modelMapper) {
+        this.modelMapper = modelMapper;
+    }
+
+    @Override
+    public BookDTO toDto(Book book) {
+        return modelMapper.map(book, BookDTO.class);
+    }
+
+    @Override
+    public Book toEntity(BookDTO dto) {
+        return modelMapper.map(dto, Book.class);
+    }
+}
@@ -0,0 +1,29 @@
+package com.library.api.api.mapper;
+
+import com.library.api.api.dto.LoanDTO;
+import com.library.api.model.Loan;
+import org.modelmapper.ModelMapper;
+
+public class ModelMapperLoanMapper implements LoanMapper {
+
+    private final ModelMapper modelMapper;
+
+    public ModelMapperLoanMapper(ModelMapper modelMapper) {
+        this.modelMapper = modelMapper;
+        //o matching padrao nao liga book.isbn com isbn
+        if (modelMapper.getTypeMap(Loan.class, LoanDTO.class) == null) {
+            modelMapper.createTypeMap(Loan.class, LoanDTO.class)
+                    .addMappings(mapper -> mapper.map(loan -> loan.getBook().getIsbn(), LoanDTO::setIsbn));
+        }
+    }
+
+    @Override
+    public LoanDTO toDto(Loan loan) {
+        return modelMapper.map(loan, LoanDTO.class);
+    }
+
+    @Override
+    public Loan toEntity(LoanDTO dto) {
+        return modelMapper.map(dto, Loan.class);
+    }
+}
@@ -1,26 +1,53 @@
 package com.library.api.api.resource;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.api.api.admission.AdmissionGroup;
+import com.library.api.api.admission.EndpointGroup;
+import com.library.api.api.dto.BookBatchDTO;
 import com.library.api.api.dto.BookDTO;
+import com.library.api.api.dto.CursorPageDTO;
+import com.library.api.api.mapper.BookMapper;
 import com.library.api.exceptions.ApiErrors;
 import com.library.api.exceptions.BusinessException;
 import com.library.api.model.Book;
+import com.library.api.model.repository.BookView;
+import com.library.api.service.BookBatch;
+import com.library.api.service.BookCursor;
+import com.library.api.service.BookImportReport;
 import com.library.api.service.BookService;
+import com.library.api.service.coalesce.SingleFlight;
+import com.library.api.service.search.CountStrategy;
+import com.library.api.service.search.CountedPage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.annotation.PostConstruct;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 @RestController
@@ -29,61 +56,163 @@ import java.util.stream.Collectors;
 public class BookController {
 
     private BookService service;
-    private ModelMapper modelMapper;
+    private BookMapper mapper;
+    private ObjectMapper objectMapper;
+    private Validator validator;
+    //buscas identicas simultaneas (mesmo filtro normalizado, pagina e count) dividem uma consulta; BookView e imutavel
+    private SingleFlight<List<Object>, Page<BookView>> searches;
 
-    public BookController(BookService service, ModelMapper modelMapper) {
+    public BookController(BookService service, BookMapper mapper, ObjectMapper objectMapper, Validator validator,
+                          ObjectProvider<MeterRegistry> meterRegistry) {
         this.service = service;
-        this.modelMapper = modelMapper;
+        this.mapper = mapper;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.searches = new SingleFlight<>("books.search", meterRegistry.getIfAvailable(SimpleMeterRegistry::new),
+                UnaryOperator.identity());
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public BookDTO create(@RequestBody @Valid BookDTO dto){
-        Book entity = modelMapper.map(dto,Book.class);
+        Book entity = mapper.toEntity(dto);
         Book entitySave = service.save(entity);
 
-        return modelMapper.map(entitySave,BookDTO.class);
+        return mapper.toDto(entitySave);
     }
 
+    //importacao em lote: corpo em NDJSON (um BookDTO por linha) ou CSV com cabecalho title,author,isbn
+    @PostMapping(value = "import", consumes = {BookImportReader.NDJSON, BookImportReader.CSV})
+    @AdmissionGroup(EndpointGroup.BULK)
+    public BookImportReport importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body){
+        BookImportReader reader = new BookImportReader(body, BookImportReader.formatOf(contentType),
+                objectMapper, validator, mapper);
+        return service.importBooks(reader);
+    }
+
+    //exportacao do catalogo (ou do filtro) em ?format=ndjson|csv, opcionalmente com &gzip=true
+    @AdmissionGroup(EndpointGroup.BULK)
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> export(BookDTO dto,
+                                                        @RequestParam(value = "format", required = false) String format,
+                                                        @RequestParam(value = "gzip", defaultValue = "false") boolean gzip){
+        BookImportReader.Format exportFormat = BookExportWriter.formatOf(format);
+        Book filter = mapper.toEntity(dto);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, BookExportWriter.contentTypeOf(exportFormat))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + BookExportWriter.fileNameOf(exportFormat) + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(new BookExportWriter(service, mapper, objectMapper, filter, exportFormat, gzip));
+    }
+
+    //varios livros numa requisicao: ?ids=1,2,3&isbns=a,b; a resposta segue a ordem pedida e lista o que nao existe
+    @GetMapping("batch")
+    public BookBatchDTO getBatch(@RequestParam(value = "ids", required = false) List<Long> ids,
+                                 @RequestParam(value = "isbns", required = false) List<String> isbns){
+        BookBatch batch = service.getAll(ids, isbns);
+        List<BookDTO> content = batch.getBooks()
+                .stream()
+                .map(book -> mapper.toDto(book))
+                .collect(Collectors.toList());
+        return new BookBatchDTO(content, batch.getMissingIds(), batch.getMissingIsbns());
+    }
+
+    //ETag = versao do livro; com If-None-Match so a versao e consultada, e o 304 sai sem montar o DTO
     @GetMapping("{id}")
-    public BookDTO get(@PathVariable Long id){
+    public ResponseEntity<BookDTO> get(@PathVariable Long id, WebRequest webRequest){
+      if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+          Long version = service.getVersion(id).orElseThrow( ()-> new ResponseStatusException(HttpStatus.NOT_FOUND));
+          if (webRequest.checkNotModified(BookETags.of(version))) {
+              return null;
+          }
+      }
       return service
                 .getById(id)
-                .map( book -> modelMapper.map(book,BookDTO.class))
+                .map( book -> withETag(book))
                 .orElseThrow( ()-> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
+    //update direto pelo id (404 pelo numero de linhas); com If-Match so altera a versao informada, senao 412
     @PutMapping("{id}")
-    public BookDTO update(@PathVariable Long id, BookDTO dto){
-      return service.getById(id).map(book -> {
-            book.setAuthor(dto.getAuthor());
-            book.setTitle(dto.getTitle());
-            Book upd = service.update(book);
-            return modelMapper.map(upd,BookDTO.class);
-
-      }).orElseThrow( ()-> new ResponseStatusException(HttpStatus.NOT_FOUND) );
+    public ResponseEntity<BookDTO> update(@PathVariable Long id, BookDTO dto,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+      return service.update(id, dto.getTitle(), dto.getAuthor(), versionsOf(ifMatch))
+              .map(book -> withETag(book))
+              .orElseThrow( ()-> new ResponseStatusException(HttpStatus.NOT_FOUND) );
     }
 
     @DeleteMapping("{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete(@PathVariable Long id){
-       Book book = service.getById(id).orElseThrow( ()-> new ResponseStatusException(HttpStatus.NOT_FOUND));
-       service.delete(book);
+    public void delete(@PathVariable Long id,
+                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+       if (!service.delete(id, versionsOf(ifMatch))) {
+           throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+       }
+    }
+
+    private ResponseEntity<BookDTO> withETag(Book book) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (book.getVersion() != null) {
+            response.eTag(BookETags.of(book.getVersion()));
+        }
+        return response.body(mapper.toDto(book));
+    }
+
+    //sem If-Match, ou If-Match: * (so exige que o livro exista), o update e incondicional: null
+    private static List<Long> versionsOf(String ifMatch) {
+        if (ifMatch == null || BookETags.ANY.equals(ifMatch.trim())) {
+            return null;
+        }
+        List<Long> versions = BookETags.versionsOf(ifMatch);
+        if (versions.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "If-Match inválido");
+        }
+        return versions;
     }
 
 
 
+    //count=exact|cached|estimated define como o totalElements e calculado
+    //a pagina ja vem do banco como BookView (mesmo JSON do BookDTO), sem passar pelo mapper
+    @AdmissionGroup(EndpointGroup.SEARCH)
     @GetMapping
-    public Page<BookDTO> findBook(BookDTO dto, Pageable pageRequest){
-        Book filter = modelMapper.map(dto,Book.class);
-        Page<Book> result = service.find(filter,pageRequest);
+    public Page<BookView> findBook(BookDTO dto, Pageable pageRequest,
+                                   @RequestParam(value = "count", required = false) String count){
+        CountStrategy countStrategy = CountStrategy.of(count);
+        List<Object> key = Arrays.asList(normalize(dto.getTitle()), normalize(dto.getAuthor()),
+                normalize(dto.getIsbn()), pageRequest, countStrategy);
+        return searches.execute(key, () -> service.findViews(mapper.toEntity(dto), pageRequest, countStrategy));
+    }
+
+    //a busca ignora maiusculas: "Aventuras" e "aventuras" sao a mesma busca
+    private static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    //paginacao por cursor: ?after=<token da resposta anterior>&size=&sort=title,asc
+    @AdmissionGroup(EndpointGroup.SEARCH)
+    @GetMapping("cursor")
+    public CursorPageDTO<BookDTO> findBookAfter(BookDTO dto,
+                                                @RequestParam(value = "after", required = false) String after,
+                                                Pageable pageRequest){
+        Book filter = mapper.toEntity(dto);
+        BookCursor cursor = after == null || after.isEmpty() ? null : BookCursor.decode(after);
+        Sort.Order order = cursor != null ? cursor.getOrder() : BookCursor.validOrder(pageRequest.getSort());
+
+        Slice<Book> result = service.findAfter(filter, cursor, order, pageRequest.getPageSize());
 
         List<BookDTO> list = result.getContent()
                 .stream()
-                .map(entity -> modelMapper.map(entity,BookDTO.class))
+                .map(entity -> mapper.toDto(entity))
                 .collect(Collectors.toList());
-        
-        //List<T> content, Pageable pageable, long total (parametros de PageImpl)
-        return new PageImpl<BookDTO>(list,pageRequest,result.getTotalElements());
+        String next = result.hasNext()
+                ? BookCursor.after(result.getContent().get(result.getNumberOfElements() - 1), order).encode()
+                : null;
+
+        return new CursorPageDTO<>(list, list.size(), result.hasNext(), next);
     }
 }
@@ -0,0 +1,37 @@
+package com.library.api.api.resource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//ETag forte de um livro: a versao entre aspas ("3")
+final class BookETags {
+
+    static final String ANY = "*";
+
+    private BookETags() {
+    }
+
+    static String of(Long version) {
+        return version == null ? null : "\"" + version + "\"";
+    }
+
+    /*
+     * Versoes aceitas por um If-Match ("1", "2"). If-Match usa comparacao forte,
+     * entao ETags fracas (W/"1") e valores que nao sao versao nunca casam.
+     */
+    static List<Long> versionsOf(String ifMatch) {
+        List<Long> versions = new ArrayList<>();
+        for (String tag : ifMatch.split(",")) {
+            String value = tag.trim();
+            if (value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+                continue;
+            }
+            try {
+                versions.add(Long.valueOf(value.substring(1, value.length() - 1)));
+            } catch (NumberFormatException ex) {
+                //ETag de outra origem: simplesmente nao casa
+            }
+        }
+        return versions;
+    }
+}
@@ -0,0 +1,151 @@
+package com.library.api.api.resource;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.api.api.dto.BookDTO;
+import com.library.api.api.mapper.BookMapper;
+import com.library.api.exceptions.BusinessException;
+import com.library.api.model.Book;
+import com.library.api.service.BookService;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Escreve a exportacao direto na resposta conforme os livros saem do cursor do banco
+ * (NDJSON, um BookDTO por linha, ou CSV com cabecalho id,title,author,isbn).
+ * Nada e acumulado: a memoria fica constante qualquer que seja o tamanho do catalogo.
+ */
+public class BookExportWriter implements StreamingResponseBody {
+
+    static final String CSV_HEADER = "id,title,author,isbn";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BookService service;
+    private final BookMapper mapper;
+    private final ObjectMapper objectMapper;
+    private final Book filter;
+    private final BookImportReader.Format format;
+    private final boolean gzip;
+
+    public BookExportWriter(BookService service, BookMapper mapper, ObjectMapper objectMapper,
+                            Book filter, BookImportReader.Format format, boolean gzip) {
+        this.service = service;
+        this.mapper = mapper;
+        this.objectMapper = objectMapper;
+        this.filter = filter;
+        this.format = format;
+        this.gzip = gzip;
+    }
+
+    public static BookImportReader.Format formatOf(String format) {
+        if (format == null || format.isEmpty()) {
+            return BookImportReader.Format.NDJSON;
+        }
+        try {
+            return BookImportReader.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new BusinessException("formato de exportação não suportado: " + format);
+        }
+    }
+
+    public static String contentTypeOf(BookImportReader.Format format) {
+        return format == BookImportReader.Format.CSV ? BookImportReader.CSV : BookImportReader.NDJSON;
+    }
+
+    public static String fileNameOf(BookImportReader.Format format) {
+        return format == BookImportReader.Format.CSV ? "books.csv" : "books.ndjson";
+    }
+
+    @Override
+    public void writeTo(OutputStream body) throws IOException {
+        OutputStream out = gzip ? new GZIPOutputStream(body, BUFFER_SIZE) : new BufferedOutputStream(body, BUFFER_SIZE);
+        try {
+            if (format == BookImportReader.Format.CSV) {
+                writeCsv(out);
+            } else {
+                writeNdjson(out);
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        //finish do gzip / flush do buffer; o stream da resposta e fechado pelo Spring
+        if (out instanceof GZIPOutputStream) {
+            ((GZIPOutputStream) out).finish();
+        }
+        out.flush();
+    }
+
+    private void writeNdjson(OutputStream out) {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            export(book -> {
+                objectMapper.writeValue(generator, mapper.toDto(book));
+                generator.writeRaw('\n');
+            });
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void writeCsv(OutputStream out) {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        try {
+            writer.write(CSV_HEADER);
+            writer.write("\r\n");
+            export(book -> {
+                BookDTO dto = mapper.toDto(book);
+                writer.write(Long.toString(dto.getId()));
+                writer.write(',');
+                writeCsvValue(writer, dto.getTitle());
+                writer.write(',');
+                writeCsvValue(writer, dto.getAuthor());
+                writer.write(',');
+                writeCsvValue(writer, dto.getIsbn());
+                writer.write("\r\n");
+            });
+            writer.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void export(IOConsumer<Book> write) {
+        Consumer<Book> consumer = book -> {
+            try {
+                write.accept(book);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        };
+        service.export(filter, consumer);
+    }
+
+    //RFC 4180: aspas so quando o valor tem separador, aspas ou quebra de linha
+    static void writeCsvValue(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private interface IOConsumer<T> {
+        void accept(T value) throws IOException;
+    }
+}
@@ -0,0 +1,208 @@
+package com.library.api.api.resource;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.api.api.dto.BookDTO;
+import com.library.api.api.mapper.BookMapper;
+import com.library.api.exceptions.BusinessException;
+import com.library.api.model.Book;
+import com.library.api.service.BookImportRow;
+import org.springframework.http.MediaType;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/*
+ * Le o corpo da importacao linha a linha (NDJSON ou CSV com cabecalho title,author,isbn),
+ * valida cada BookDTO e entrega as linhas uma a uma: o arquivo nunca fica inteiro em memoria.
+ * No CSV um registro continua na linha seguinte enquanto houver aspas abertas (quebra de linha
+ * dentro do valor, como o BookExportWriter escreve).
+ */
+public class BookImportReader implements Iterator<BookImportRow> {
+
+    public static final String NDJSON = "application/x-ndjson";
+    public static final String CSV = "text/csv";
+
+    public enum Format { NDJSON, CSV }
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final BookMapper mapper;
+
+    private Map<String, Integer> csvColumns;
+    private long line;
+    private long nextLine;
+    private String next;
+
+    public BookImportReader(InputStream body, Format format, ObjectMapper objectMapper, Validator validator, BookMapper mapper) {
+        this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        this.format = format;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.mapper = mapper;
+        if (format == Format.CSV) {
+            readCsvHeader();
+        }
+    }
+
+    public static Format formatOf(String contentType) {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        if (mediaType.isCompatibleWith(MediaType.parseMediaType(CSV))) {
+            return Format.CSV;
+        }
+        if (mediaType.isCompatibleWith(MediaType.parseMediaType(NDJSON))) {
+            return Format.NDJSON;
+        }
+        throw new BusinessException("formato de importação não suportado: " + contentType);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            String read = readLine();
+            if (read == null) {
+                return false;
+            }
+            if (!read.trim().isEmpty()) {
+                nextLine = line;
+                next = format == Format.CSV ? readCsvRecord(read) : read;
+            }
+        }
+        return true;
+    }
+
+    //junta as linhas seguintes enquanto o valor entre aspas nao fecha; \r\n dentro do valor vira \n
+    private String readCsvRecord(String first) {
+        StringBuilder record = new StringBuilder(first);
+        while (openQuote(record)) {
+            String read = readLine();
+            if (read == null) {
+                break;
+            }
+            record.append('\n').append(read);
+        }
+        return record.toString();
+    }
+
+    @Override
+    public BookImportRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String current = next;
+        next = null;
+
+        BookDTO dto;
+        try {
+            dto = format == Format.CSV ? fromCsv(current) : objectMapper.readValue(current, BookDTO.class);
+        } catch (JsonProcessingException | IllegalArgumentException ex) {
+            return BookImportRow.invalid(nextLine, null, "linha inválida");
+        }
+
+        Set<ConstraintViolation<BookDTO>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            return BookImportRow.invalid(nextLine, dto.getIsbn(), message);
+        }
+        //importacao sempre cria livros: o id de uma exportacao nao vale aqui (o persist recusaria a entidade)
+        Book book = mapper.toEntity(dto);
+        book.setId(null);
+        return BookImportRow.valid(nextLine, book);
+    }
+
+    private String readLine() {
+        try {
+            String read = reader.readLine();
+            if (read != null) {
+                line++;
+            }
+            return read;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void readCsvHeader() {
+        String header = readLine();
+        if (header == null) {
+            throw new BusinessException("csv sem cabeçalho");
+        }
+        csvColumns = new HashMap<>();
+        List<String> names = parseCsv(header);
+        for (int i = 0; i < names.size(); i++) {
+            csvColumns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!csvColumns.keySet().containsAll(Arrays.asList("title", "author", "isbn"))) {
+            throw new BusinessException("cabeçalho do csv deve ter title, author e isbn");
+        }
+    }
+
+    private BookDTO fromCsv(String current) {
+        List<String> values = parseCsv(current);
+        return BookDTO.builder()
+                .title(column(values, "title"))
+                .author(column(values, "author"))
+                .isbn(column(values, "isbn"))
+                .build();
+    }
+
+    private String column(List<String> values, String name) {
+        int index = csvColumns.get(name);
+        return index < values.size() ? values.get(index) : null;
+    }
+
+    //mesma leitura de aspas do parseCsv: "" dentro de aspas e uma aspa, nao fecha o valor
+    static boolean openQuote(CharSequence record) {
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted && c == '"' && i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                i++;
+            } else if (c == '"') {
+                quoted = !quoted;
+            }
+        }
+        return quoted;
+    }
+
+    //RFC 4180; o registro ja vem com as quebras de linha de dentro das aspas (readCsvRecord)
+    static List<String> parseCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("aspas sem fechamento");
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
@@ -1,20 +1,28 @@
 package com.library.api.api.resource;
 
+import com.library.api.api.dto.CursorPageDTO;
 import com.library.api.api.dto.LoanDTO;
+import com.library.api.api.dto.LoanReturnDTO;
+import com.library.api.api.mapper.LoanMapper;
 import com.library.api.model.Book;
 import com.library.api.model.Loan;
+import com.library.api.model.repository.LoanHistory;
 import com.library.api.service.BookService;
+import com.library.api.service.LoanReturnOutcome;
 import com.library.api.service.LoanService;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
 import java.time.LocalDate;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/loans")
@@ -22,10 +30,12 @@ public class LoanController {
 
     private LoanService loanService;
     private BookService bookService;
+    private LoanMapper mapper;
 
-    public LoanController(LoanService loanService,BookService bookService) {
+    public LoanController(LoanService loanService,BookService bookService, LoanMapper mapper) {
         this.loanService = loanService;
         this.bookService = bookService;
+        this.mapper = mapper;
     }
 
     @PostMapping
@@ -35,14 +45,33 @@ public class LoanController {
                 .getBookByIsbn(dto.getIsbn())
                 .orElseThrow( ()->
                         new ResponseStatusException(HttpStatus.BAD_REQUEST,"bock not found for passed isbn"));
-        Loan entity = Loan.builder()
-                .book(book)
-                .customer(dto.getCustomer())
-                .loanDate(LocalDate.now())
-                .build();
+        Loan entity = mapper.toEntity(dto);
+        entity.setBook(book);
+        entity.setLoanDate(LocalDate.now());
 
         Loan savedLoan = loanService.save(entity);
 
         return savedLoan.getId();
     }
+
+    //devolucao em lote (leitura do balcao): um resultado por id/isbn informado
+    @PatchMapping("returns")
+    public List<LoanReturnOutcome> returnLoans(@RequestBody LoanReturnDTO dto){
+        return loanService.returnLoans(dto.getIds(), dto.getIsbns());
+    }
+
+    //historico paginado por cursor: ?customer=&isbn=&returned=&size=&after=<next da resposta anterior>
+    @GetMapping
+    public CursorPageDTO<LoanHistory> findLoans(@RequestParam(value = "customer", required = false) String customer,
+                                                @RequestParam(value = "isbn", required = false) String isbn,
+                                                @RequestParam(value = "returned", required = false) Boolean returned,
+                                                @RequestParam(value = "after", required = false) Long after,
+                                                Pageable pageRequest){
+        Slice<LoanHistory> result = loanService.findHistory(customer, isbn, returned, after, pageRequest.getPageSize());
+
+        String next = result.hasNext()
+                ? String.valueOf(result.getContent().get(result.getNumberOfElements() - 1).getId())
+                : null;
+        return new CursorPageDTO<>(result.getContent(), result.getNumberOfElements(), result.hasNext(), next);
+    }
 }
@@ -0,0 +1,18 @@
+package com.library.api.exceptions;
+
+import java.time.Duration;
+
+//requisicao recusada pelo controle de admissao; vira 503 com Retry-After
+public class OverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public OverloadedException(String msg, Duration retryAfter) {
+        super(msg);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,57 @@
+package com.library.api.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+//mede cada chamada com um Timer por metodo; percentis e histogramas vem de management.metrics.distribution.*
+class MethodTimingInterceptor implements MethodInterceptor {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final String metric;
+    private final Tags tags;
+    //timers das chamadas sem erro, para o caminho comum nao procurar o meter no registry
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    MethodTimingInterceptor(ObjectProvider<MeterRegistry> meterRegistry, String metric, Tags tags) {
+        this.meterRegistry = meterRegistry;
+        this.metric = metric;
+        this.tags = tags;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null || method.getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable ex) {
+            timer(registry, method, ex.getClass().getSimpleName()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw ex;
+        }
+        timers.computeIfAbsent(method, key -> timer(registry, key, "none"))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private Timer timer(MeterRegistry registry, Method method, String exception) {
+        return Timer.builder(metric)
+                .tags(tags)
+                .tag("method", method.getName())
+                .tag("exception", exception)
+                .register(registry);
+    }
+}
@@ -0,0 +1,84 @@
+package com.library.api.metrics;
+
+import com.library.api.api.mapper.BookMapper;
+import com.library.api.api.mapper.LoanMapper;
+import com.library.api.model.repository.BookRepository;
+import com.library.api.model.repository.JobCheckpointRepository;
+import com.library.api.model.repository.LoanRepository;
+import com.library.api.service.BookService;
+import com.library.api.service.LoanService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Coloca um Timer em toda chamada aos services, repositories e mappers:
+ *   library.service / library.repository  tags type (interface) e method
+ *   library.mapper                         tags type, impl (ModelMapper ou MapStruct) e method
+ * Junto com http.server.requests da para separar o tempo de um findBook em sql, mapeamento
+ * e o resto (serializacao). Beans que ja sao proxies (@Transactional, Spring Data) recebem
+ * o interceptor na frente da cadeia existente.
+ */
+@Component
+public class MethodTimingPostProcessor implements BeanPostProcessor, Ordered {
+
+    private static final Map<Class<?>, String> TIMED = new LinkedHashMap<>();
+
+    static {
+        TIMED.put(BookService.class, "library.service");
+        TIMED.put(LoanService.class, "library.service");
+        TIMED.put(BookRepository.class, "library.repository");
+        TIMED.put(LoanRepository.class, "library.repository");
+        TIMED.put(JobCheckpointRepository.class, "library.repository");
+        TIMED.put(BookMapper.class, "library.mapper");
+        TIMED.put(LoanMapper.class, "library.mapper");
+    }
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    //ObjectProvider: o registry so e criado depois de configurado, nao junto com este post processor
+    public MethodTimingPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        for (Map.Entry<Class<?>, String> timed : TIMED.entrySet()) {
+            if (timed.getKey().isInstance(bean)) {
+                return instrument(bean, timed.getKey(), timed.getValue());
+            }
+        }
+        return bean;
+    }
+
+    private Object instrument(Object bean, Class<?> type, String metric) {
+        Tags tags = Tags.of("type", type.getSimpleName());
+        if ("library.mapper".equals(metric)) {
+            tags = tags.and("impl", AopUtils.getTargetClass(bean).getSimpleName());
+        }
+        MethodTimingInterceptor interceptor = new MethodTimingInterceptor(meterRegistry, metric, tags);
+
+        if (bean instanceof Advised && !((Advised) bean).isFrozen()) {
+            ((Advised) bean).addAdvice(0, interceptor);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy(bean.getClass().getClassLoader());
+    }
+
+    //depois dos auto proxy creators (@Transactional), que rodam com prioridade maxima
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
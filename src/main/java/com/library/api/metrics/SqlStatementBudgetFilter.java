@@ -0,0 +1,113 @@
+package com.library.api.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/*
+ * Statements e tempo de banco por requisicao: loga as que passam de library.sql.statement-budget
+ * e, fora de producao (library.sql.header=true), devolve os numeros nos headers X-SQL-*.
+ * O header vai quando o corpo comeca a ser escrito, ou seja, depois do controller;
+ * o que roda fora da thread da requisicao (exportacao em streaming) nao entra na conta.
+ */
+@Slf4j
+@Component
+public class SqlStatementBudgetFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENTS_HEADER = "X-SQL-Statements";
+    public static final String TIME_HEADER = "X-SQL-Time-Ms";
+
+    private final int budget;
+    private final boolean header;
+
+    public SqlStatementBudgetFilter(@Value("${library.sql.statement-budget:10}") int budget,
+                                   @Value("${library.sql.header:false}") boolean header) {
+        this.budget = budget;
+        this.header = header;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementCounter.Scope scope = SqlStatementCounter.open();
+        HeaderWriter writer = header ? new HeaderWriter(response, scope) : null;
+        try {
+            chain.doFilter(request, writer != null ? writer : response);
+        } finally {
+            if (writer != null) {
+                writer.writeHeaders();
+            }
+            scope.close();
+            if (scope.getStatements() > budget) {
+                log.warn("{} {} executou {} statements (orçamento {}) em {} ms", request.getMethod(),
+                        request.getRequestURI(), scope.getStatements(), budget, scope.getElapsedMillis());
+            }
+        }
+    }
+
+    //coloca os headers uma vez, antes do primeiro byte do corpo (depois disso a resposta ja foi enviada)
+    private static class HeaderWriter extends HttpServletResponseWrapper {
+        private final SqlStatementCounter.Scope scope;
+        private boolean written;
+
+        HeaderWriter(HttpServletResponse response, SqlStatementCounter.Scope scope) {
+            super(response);
+            this.scope = scope;
+        }
+
+        void writeHeaders() {
+            if (written || isCommitted()) {
+                return;
+            }
+            written = true;
+            setHeader(STATEMENTS_HEADER, String.valueOf(scope.getStatements()));
+            setHeader(TIME_HEADER, String.valueOf(scope.getElapsedMillis()));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeaders();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeaders();
+            super.sendRedirect(location);
+        }
+    }
+}
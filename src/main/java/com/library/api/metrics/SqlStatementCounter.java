@@ -0,0 +1,60 @@
+package com.library.api.metrics;
+
+/*
+ * Conta statements e tempo de banco da thread atual dentro de um escopo aberto (requisicao,
+ * teste...). Escopos podem ser aninhados: ao fechar, o interno soma seus numeros no externo.
+ * Fora de um escopo nada e contado.
+ */
+public final class SqlStatementCounter {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private SqlStatementCounter() {
+    }
+
+    public static Scope open() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    static void record(int statements, long elapsedMillis) {
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            scope.add(statements, elapsedMillis);
+        }
+    }
+
+    public static class Scope implements AutoCloseable {
+        private final Scope parent;
+        private int statements;
+        private long elapsedMillis;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        public int getStatements() {
+            return statements;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        private void add(int statements, long elapsedMillis) {
+            this.statements += statements;
+            this.elapsedMillis += elapsedMillis;
+        }
+
+        @Override
+        public void close() {
+            if (parent == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(parent);
+                parent.add(statements, elapsedMillis);
+            }
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.library.api.model;
 
+import com.library.api.model.cache.SecondLevelCacheRegions;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
@@ -10,13 +15,34 @@ import javax.persistence.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+//paginacao por keyset (BookCursor) ordena por (title, id) e (author, id); por isbn usa a unique
+@Table(uniqueConstraints = @UniqueConstraint(name = Book.UK_ISBN, columnNames = "isbn"),
+        indexes = {@Index(name = "idx_book_title_id", columnList = "title, id"),
+                @Index(name = "idx_book_author_id", columnList = "author, id")})
+//cache de segundo nivel: por id e pela isbn (natural id), sem sql enquanto o livro estiver na regiao
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheRegions.BOOK)
+@NaturalIdCache(region = SecondLevelCacheRegions.BOOK_ISBN)
 public class Book {
 
+    public static final String UK_ISBN = "uk_book_isbn";
+
+    //sequence com pooled optimizer: o Hibernate so consegue agrupar inserts em batch sem IDENTITY
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
 
     private String title;
     private String author;
+
+    //mutavel: o update completo do livro ainda pode trocar a isbn
+    @NaturalId(mutable = true)
     private String isbn;
+
+    //controle otimista: cada update incrementa; o controller expoe como ETag.
+    //Linhas anteriores a coluna ficam com null ate o BookVersionBackfill; as consultas diretas tratam null como 0
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
@@ -0,0 +1,40 @@
+package com.library.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Version;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+//progresso persistido de um job em lotes: permite retomar do ultimo lote concluido.
+//owner + lockedUntil sao o lease que deixa uma unica instancia executar o job por vez
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class JobCheckpoint {
+
+    @Id
+    private String name;
+
+    //data de corte da execucao; uma execucao retomada usa a mesma data
+    private LocalDate cutoff;
+    private LocalDate lastLoanDate;
+    private Long lastId;
+    private long processed;
+    private boolean finished;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private String owner;
+    private LocalDateTime lockedUntil;
+
+    //quem perdeu o lease (expirado e tomado por outra instancia) falha ao gravar o checkpoint
+    @Version
+    private Long version;
+}
@@ -3,12 +3,11 @@ package com.library.api.model;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
-import javax.persistence.Entity;
-import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
-import javax.persistence.Id;
+import javax.persistence.*;
 import java.time.LocalDate;
 
 @Data
@@ -16,15 +15,42 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+//book_id + returned atende a consulta de livro emprestado; customer atende as buscas por cliente;
+//returned + overdue + loan_date + id e a ordem do keyset da varredura de atrasados
+@Table(indexes = {
+        @Index(name = "idx_loan_book_returned", columnList = "book_id, returned"),
+        @Index(name = "idx_loan_customer", columnList = "customer"),
+        @Index(name = "idx_loan_overdue", columnList = "returned, overdue, loan_date, id")
+}, uniqueConstraints = @UniqueConstraint(name = Loan.UK_ACTIVE_BOOK, columnNames = "active_book_id"))
 public class Loan {
 
+    public static final String UK_ACTIVE_BOOK = "uk_loan_active_book";
+
+    //sequence em vez de IDENTITY: o write-behind grava os emprestimos em batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_seq")
+    @SequenceGenerator(name = "loan_seq", sequenceName = "loan_seq", allocationSize = 50)
     private Long id;
     private String customer;
 
+    //lazy: listar emprestimos nao carrega o livro; toString/equals nao disparam a carga
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "book_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Book book;
+    @Column(name = "loan_date")
     private LocalDate loanDate;
     private boolean returned;
+    //marcado pela varredura de atrasados (OverdueLoanJob) depois que os listeners trataram o emprestimo
+    private boolean overdue;
+
+    /*
+     * Id do livro enquanto o emprestimo esta ativo, null depois da devolucao. O indice unico
+     * aceita varios nulls (H2 e MySQL), entao funciona como um indice unico parcial
+     * "book_id where returned = false": no maximo um emprestimo ativo por livro.
+     */
+    @Column(name = "active_book_id")
+    private Long activeBookId;
 
 }
@@ -0,0 +1,62 @@
+package com.library.api.model.cache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/*
+ * Regioes do cache de segundo nivel do Hibernate (JCache sobre Caffeine, em memoria), criadas aqui
+ * com tamanho e validade do application.properties; regiao nao declarada falha na subida.
+ * Sem cache de consultas: so livros por id e por isbn.
+ */
+public class SecondLevelCacheRegions implements HibernatePropertiesCustomizer {
+
+    public static final String BOOK = "book";
+    public static final String BOOK_ISBN = "book-isbn";
+
+    private final long entityMaxSize;
+    private final Duration entityTtl;
+
+    public SecondLevelCacheRegions(long entityMaxSize, Duration entityTtl) {
+        this.entityMaxSize = entityMaxSize;
+        this.entityTtl = entityTtl;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        if (!Boolean.parseBoolean(String.valueOf(hibernateProperties.get(AvailableSettings.USE_SECOND_LEVEL_CACHE)))) {
+            return;
+        }
+        //um CacheManager por EntityManagerFactory (contextos de teste nao dividem regioes); o Hibernate fecha no shutdown
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("library-l2-" + UUID.randomUUID()), getClass().getClassLoader());
+        create(cacheManager, BOOK, entityMaxSize, entityTtl);
+        create(cacheManager, BOOK_ISBN, entityMaxSize, entityTtl);
+
+        hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+        hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+    }
+
+    //maxSize 0 e ttl nulo = sem limite
+    private static void create(CacheManager cacheManager, String region, long maxSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setStatisticsEnabled(true);
+        if (maxSize > 0) {
+            configuration.setMaximumSize(OptionalLong.of(maxSize));
+        }
+        if (ttl != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        }
+        cacheManager.createCache(region, configuration);
+    }
+}
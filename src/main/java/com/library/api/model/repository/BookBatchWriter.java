@@ -0,0 +1,29 @@
+package com.library.api.model.repository;
+
+import com.library.api.model.Book;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+/*
+ * Insere um lote de livros em uma transacao. Com ids por sequence e hibernate.jdbc.batch_size
+ * o flush vira um unico executeBatch; o clear solta as entidades para o lote seguinte.
+ */
+@Repository
+public class BookBatchWriter {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional
+    public void insertAll(List<Book> books) {
+        for (Book book : books) {
+            entityManager.persist(book);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -1,14 +1,46 @@
 package com.library.api.model.repository;
 
 import com.library.api.model.Book;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @EnableJpaRepositories
-public interface BookRepository extends JpaRepository<Book,Long> {
+public interface BookRepository extends JpaRepository<Book,Long>, BookRepositoryCustom {
     boolean existsByIsbn(String isbn);
 
-    Optional<Book> findByIsbn(String isbn);
+    //percorre a tabela por id (keyset), sem offset e sem count
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("select b.isbn from Book b where b.isbn in :isbns")
+    List<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    List<Book> findByIsbnIn(Collection<String> isbns);
+
+    //pagina da busca pelo indice: projecao direto em BookView, sem flush antes
+    @Query("select new com.library.api.model.repository.BookView(b.id, b.title, b.author, b.isbn) " +
+            "from Book b where b.id in :ids")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    List<BookView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    //so a versao, para responder If-None-Match sem carregar o livro
+    @Query("select coalesce(b.version, 0) from Book b where b.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    //livros gravados antes da coluna version; ver BookVersionBackfill
+    @Transactional
+    @Modifying
+    @Query("update Book b set b.version = 0 where b.version is null")
+    int backfillVersions();
 }
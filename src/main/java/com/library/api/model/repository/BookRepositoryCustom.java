@@ -0,0 +1,52 @@
+package com.library.api.model.repository;
+
+import com.library.api.model.Book;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface BookRepositoryCustom {
+
+    //busca pelo natural id: isbn -> id e id -> livro saem do cache de segundo nivel quando ja estao la
+    Optional<Book> findByIsbn(String isbn);
+
+    /*
+     * Pagina por keyset: order by (propriedade, id) com "where (propriedade, id) > (lastKey, lastId)".
+     * Sem offset e sem count. lastId nulo devolve a primeira pagina.
+     */
+    List<Book> findAfter(Example<Book> example, Sort.Order order, String lastKey, Long lastId, int limit);
+
+    //mesma consulta do findAll(Example, Pageable), mas le ate limit linhas e nao roda o count
+    List<Book> findContent(Example<Book> example, Pageable pageable, int limit);
+
+    /*
+     * Mesma consulta do findContent projetada em BookView (select new, sem entidades gerenciadas)
+     * e sem flush antes do select. Pageable sem paginacao devolve tudo.
+     */
+    List<BookView> findViews(Example<Book> example, Pageable pageable, int limit);
+
+    /*
+     * Cursor forward-only ordenado por id, lido fetchSize linhas por vez e com cada livro
+     * desanexado do contexto, sem ler nem gravar o cache de segundo nivel. Precisa de transacao aberta
+     * e deve ser fechado por quem consome.
+     */
+    Stream<Book> streamAll(Example<Book> example, int fetchSize);
+
+    /*
+     * Update/delete direto pelo id, em um statement e sem carregar o livro; 0 linhas = livro inexistente.
+     * Tira do cache de segundo nivel so o livro alterado (no delete, tambem as isbns: ver BookRepositoryImpl).
+     */
+    int updateTitleAndAuthor(Long id, String title, String author);
+
+    int deleteWhereId(Long id);
+
+    //condicionais do If-Match: 0 linhas = livro inexistente ou versao diferente
+    int updateIfVersion(Long id, String title, String author, Collection<Long> versions);
+
+    int deleteIfVersion(Long id, Collection<Long> versions);
+}
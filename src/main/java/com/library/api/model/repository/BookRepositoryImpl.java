@@ -0,0 +1,249 @@
+package com.library.api.model.repository;
+
+import com.library.api.model.Book;
+import org.hibernate.Cache;
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+//implementacao das consultas de BookRepositoryCustom (o Spring Data junta pelo sufixo Impl)
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //a Session so e acessivel dentro de transacao, como no findById do SimpleJpaRepository
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Book> findByIsbn(String isbn) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(Book.class)
+                .loadOptional(isbn);
+    }
+
+    @Override
+    public List<Book> findAfter(Example<Book> example, Sort.Order order, String lastKey, Long lastId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        Predicate filter = QueryByExamplePredicateBuilder.getPredicate(root, cb, example);
+        if (filter != null) {
+            predicates.add(filter);
+        }
+        if (lastId != null) {
+            predicates.add(keysetPredicate(cb, root, order, lastKey, lastId));
+        }
+
+        Path<Long> id = root.get("id");
+        if ("id".equals(order.getProperty())) {
+            query.orderBy(order.isAscending() ? cb.asc(id) : cb.desc(id));
+        } else {
+            Path<String> key = root.get(order.getProperty());
+            query.orderBy(order.isAscending() ? cb.asc(key) : cb.desc(key),
+                    order.isAscending() ? cb.asc(id) : cb.desc(id));
+        }
+        query.select(root).where(predicates.toArray(new Predicate[0]));
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public List<Book> findContent(Example<Book> example, Pageable pageable, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+
+        Predicate filter = QueryByExamplePredicateBuilder.getPredicate(root, cb, example);
+        if (filter != null) {
+            query.where(filter);
+        }
+        query.select(root).orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+        return entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<BookView> findViews(Example<Book> example, Pageable pageable, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookView> query = cb.createQuery(BookView.class);
+        Root<Book> root = query.from(Book.class);
+
+        Predicate filter = QueryByExamplePredicateBuilder.getPredicate(root, cb, example);
+        if (filter != null) {
+            query.where(filter);
+        }
+        query.select(cb.construct(BookView.class, root.get("id"), root.get("title"), root.get("author"), root.get("isbn")))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+        TypedQuery<BookView> typedQuery = entityManager.createQuery(query)
+                .setHint(QueryHints.HINT_FLUSH_MODE, FlushMode.MANUAL);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset()).setMaxResults(limit);
+        }
+        return typedQuery.getResultList();
+    }
+
+    @Override
+    public Stream<Book> streamAll(Example<Book> example, int fetchSize) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+
+        Predicate filter = QueryByExamplePredicateBuilder.getPredicate(root, cb, example);
+        if (filter != null) {
+            query.where(filter);
+        }
+        query.select(root).orderBy(cb.asc(root.get("id")));
+
+        /*
+         * O catalogo inteiro nao passa pelo cache de segundo nivel (nem le nem empurra os livros quentes
+         * para fora). O hint org.hibernate.cacheMode so vale enquanto a consulta abre o cursor; as linhas
+         * sao montadas depois, durante a leitura do stream, entao a sessao fica em IGNORE ate o close.
+         */
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode cacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.IGNORE);
+        try {
+            return entityManager.createQuery(query)
+                    .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                    .setHint(QueryHints.HINT_READONLY, true)
+                    .setHint(QueryHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+                    .getResultStream()
+                    .peek(entityManager::detach)
+                    .onClose(() -> session.setCacheMode(cacheMode));
+        } catch (RuntimeException ex) {
+            session.setCacheMode(cacheMode);
+            throw ex;
+        }
+    }
+
+    /*
+     * Os quatro abaixo sao JPQL em massa, como os @Modifying de BookRepository: o Hibernate traduz o nome da
+     * entidade e das colunas, descarrega as alteracoes pendentes antes e, no bulk cleanup, esvazia as regioes
+     * book e book-isbn. O contexto de persistencia e limpo depois (clearAutomatically), para um findById
+     * na mesma transacao nao devolver o livro antigo. Depois do commit o livro alterado sai de novo do
+     * cache (no delete tambem a isbn): uma leitura concorrente pode ter posto a versao antiga entre o
+     * statement e o commit.
+     */
+    @Override
+    @Transactional
+    public int updateTitleAndAuthor(Long id, String title, String author) {
+        return update(id, title, author, null);
+    }
+
+    @Override
+    @Transactional
+    public int updateIfVersion(Long id, String title, String author, Collection<Long> versions) {
+        return versions.isEmpty() ? 0 : update(id, title, author, versions);
+    }
+
+    @Override
+    @Transactional
+    public int deleteWhereId(Long id) {
+        return delete(id, null);
+    }
+
+    @Override
+    @Transactional
+    public int deleteIfVersion(Long id, Collection<Long> versions) {
+        return versions.isEmpty() ? 0 : delete(id, versions);
+    }
+
+    private int update(Long id, String title, String author, Collection<Long> versions) {
+        Query query = entityManager.createQuery("update Book b set b.title = :title, b.author = :author, " +
+                "b.version = coalesce(b.version, 0) + 1 where b.id = :id" + versionCondition(versions))
+                .setParameter("title", title)
+                .setParameter("author", author);
+        return execute(query, id, versions, false);
+    }
+
+    private int delete(Long id, Collection<Long> versions) {
+        Query query = entityManager.createQuery("delete from Book b where b.id = :id" + versionCondition(versions));
+        return execute(query, id, versions, true);
+    }
+
+    private static String versionCondition(Collection<Long> versions) {
+        return versions == null ? "" : " and coalesce(b.version, 0) in :versions";
+    }
+
+    private int execute(Query query, Long id, Collection<Long> versions, boolean deleted) {
+        query.setParameter("id", id);
+        if (versions != null) {
+            query.setParameter("versions", versions);
+        }
+        entityManager.flush();
+        int affected = query.executeUpdate();
+        entityManager.clear();
+        if (affected > 0) {
+            evictAfterCompletion(id, deleted);
+        }
+        return affected;
+    }
+
+    private void evictAfterCompletion(Long id, boolean deleted) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                Cache cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+                cache.evictEntityData(Book.class, id);
+                if (deleted) {
+                    cache.evictNaturalIdData(Book.class);
+                }
+            }
+        });
+    }
+
+    /*
+     * Nulos vem primeiro no ASC e por ultimo no DESC (H2 e MySQL): um cursor com valor nulo
+     * ainda esta no bloco dos nulos, um cursor com valor preenchido ja passou por ele (ASC)
+     * ou ainda vai chegar nele (DESC).
+     */
+    private static Predicate keysetPredicate(CriteriaBuilder cb, Root<Book> root, Sort.Order order, String lastKey, Long lastId) {
+        Path<Long> id = root.get("id");
+        Predicate afterId = order.isAscending() ? cb.greaterThan(id, lastId) : cb.lessThan(id, lastId);
+        if ("id".equals(order.getProperty())) {
+            return afterId;
+        }
+
+        Path<String> key = root.get(order.getProperty());
+        if (lastKey == null) {
+            return order.isAscending()
+                    ? cb.or(cb.and(cb.isNull(key), afterId), cb.isNotNull(key))
+                    : cb.and(cb.isNull(key), afterId);
+        }
+        Predicate afterKey = order.isAscending() ? cb.greaterThan(key, lastKey) : cb.lessThan(key, lastKey);
+        Predicate sameKey = cb.and(cb.equal(key, lastKey), afterId);
+        return order.isAscending()
+                ? cb.or(afterKey, sameKey)
+                : cb.or(afterKey, sameKey, cb.isNull(key));
+    }
+}
@@ -0,0 +1,33 @@
+package com.library.api.model.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/*
+ * Livros gravados antes da coluna version (ddl-auto=update no MySQL so cria a coluna, com null)
+ * recebem versao 0 na subida. Sem isso o Hibernate nao incrementa a versao desses livros e o
+ * ETag sai nulo; as consultas diretas de BookRepository ja tratam null como 0 enquanto isso.
+ */
+@Slf4j
+@Component
+public class BookVersionBackfill {
+
+    private final BookRepository repository;
+
+    public BookVersionBackfill(BookRepository repository) {
+        this.repository = repository;
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        int updated = repository.backfillVersions();
+        if (updated > 0) {
+            log.info("versao 0 atribuida a {} livros sem versao", updated);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.library.api.model.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * Livro da busca montado pelo select new ...: nao e entidade, entao nao entra no contexto de
+ * persistencia (sem snapshot para dirty checking) e vai direto para a resposta, com o mesmo JSON do BookDTO.
+ */
+@Getter
+@AllArgsConstructor
+public class BookView {
+    private final Long id;
+    private final String title;
+    private final String author;
+    private final String isbn;
+}
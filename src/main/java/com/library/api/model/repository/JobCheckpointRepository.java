@@ -0,0 +1,27 @@
+package com.library.api.model.repository;
+
+import com.library.api.model.JobCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+
+    //toma o lease se esta livre, expirado ou ja e do owner; 0 linhas = outra instancia esta executando
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update JobCheckpoint c set c.owner = :owner, c.lockedUntil = :until, c.version = c.version + 1 " +
+            "where c.name = :name and (c.lockedUntil is null or c.lockedUntil < :now or c.owner = :owner)")
+    int acquire(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now,
+                @Param("until") LocalDateTime until);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update JobCheckpoint c set c.lockedUntil = null, c.version = c.version + 1 " +
+            "where c.name = :name and c.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner);
+}
@@ -0,0 +1,40 @@
+package com.library.api.model.repository;
+
+import com.library.api.model.Book;
+import com.library.api.model.Loan;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+/*
+ * Insere um lote de emprestimos em uma transacao (um executeBatch, ids por sequence).
+ * O livro entra como referencia: o insert so precisa do id, e a copia vinda do cache nao e gerenciada.
+ */
+@Repository
+public class LoanBatchWriter {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional
+    public void insertAll(List<Loan> loans) {
+        Book[] books = new Book[loans.size()];
+        try {
+            for (int i = 0; i < loans.size(); i++) {
+                Loan loan = loans.get(i);
+                books[i] = loan.getBook();
+                loan.setBook(entityManager.getReference(Book.class, books[i].getId()));
+                entityManager.persist(loan);
+            }
+            entityManager.flush();
+            entityManager.clear();
+        } finally {
+            for (int i = 0; i < loans.size() && books[i] != null; i++) {
+                loans.get(i).setBook(books[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.library.api.model.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+//linha do historico de emprestimos, montada pelo select new ... com title/isbn do livro no mesmo sql
+@Getter
+@AllArgsConstructor
+public class LoanHistory {
+    private final Long id;
+    private final String customer;
+    private final LocalDate loanDate;
+    private final boolean returned;
+    private final Long bookId;
+    private final String title;
+    private final String isbn;
+}
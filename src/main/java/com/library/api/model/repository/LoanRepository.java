@@ -0,0 +1,61 @@
+package com.library.api.model.repository;
+
+import com.library.api.model.Loan;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface LoanRepository extends JpaRepository<Loan, Long>, LoanRepositoryCustom {
+
+    //select ... where book_id = ? and returned = false limit 1, so no indice (book_id, returned)
+    boolean existsByBookIdAndReturnedFalse(Long bookId);
+
+    //primeiro lote da varredura de atrasados, na ordem do indice (returned, overdue, loan_date, id);
+    //emprestimos ja marcados como atrasados nao voltam
+    @Query("select l.id as id, l.customer as customer, l.book.id as bookId, l.loanDate as loanDate from Loan l " +
+            "where l.returned = false and l.overdue = false and l.loanDate < :before " +
+            "order by l.loanDate, l.id")
+    List<OverdueLoan> findOverdue(@Param("before") LocalDate before, Pageable pageable);
+
+    //lotes seguintes: continua depois da chave (loanDate, id) do ultimo lote, sem offset
+    @Query("select l.id as id, l.customer as customer, l.book.id as bookId, l.loanDate as loanDate from Loan l " +
+            "where l.returned = false and l.overdue = false and l.loanDate < :before " +
+            "and (l.loanDate > :lastDate or (l.loanDate = :lastDate and l.id > :lastId)) " +
+            "order by l.loanDate, l.id")
+    List<OverdueLoan> findOverdueAfter(@Param("before") LocalDate before, @Param("lastDate") LocalDate lastDate,
+                                       @Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("select l.id as id, b.isbn as isbn, l.returned as returned from Loan l join l.book b where l.id in :ids")
+    List<LoanStatus> findStatusByIdIn(@Param("ids") Collection<Long> ids);
+
+    //emprestimos ainda abertos dos livros com essas isbns (no maximo um por livro)
+    @Query("select l.id as id, b.isbn as isbn, l.returned as returned from Loan l join l.book b " +
+            "where b.isbn in :isbns and l.returned = false")
+    List<LoanStatus> findActiveByIsbnIn(@Param("isbns") Collection<String> isbns);
+
+    //trava os que ainda estao abertos (select ... for update, so a tabela loan, sem entidades): uma devolucao
+    //concorrente do mesmo emprestimo espera o commit desta e ja nao o encontra aberto
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l.id from Loan l where l.id in :ids and l.returned = false")
+    List<Long> lockOpenIdsIn(@Param("ids") Collection<Long> ids);
+
+    //um update por lote; libera active_book_id para o livro poder ser emprestado de novo
+    @Modifying
+    @Query("update Loan l set l.returned = true, l.activeBookId = null where l.id in :ids and l.returned = false")
+    int markReturned(@Param("ids") Collection<Long> ids);
+
+    //um update por lote da varredura de atrasados
+    @Transactional
+    @Modifying
+    @Query("update Loan l set l.overdue = true where l.id in :ids and l.returned = false")
+    int markOverdue(@Param("ids") Collection<Long> ids);
+}
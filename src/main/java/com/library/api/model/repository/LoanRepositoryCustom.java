@@ -0,0 +1,12 @@
+package com.library.api.model.repository;
+
+import java.util.List;
+
+public interface LoanRepositoryCustom {
+
+    /*
+     * Historico mais recente primeiro (id decrescente), continuando antes de beforeId.
+     * Filtros nulos sao ignorados; customer usa o indice idx_loan_customer.
+     */
+    List<LoanHistory> findHistory(String customer, String isbn, Boolean returned, Long beforeId, int limit);
+}
@@ -0,0 +1,48 @@
+package com.library.api.model.repository;
+
+import com.library.api.model.Book;
+import com.library.api.model.Loan;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.*;
+import java.util.ArrayList;
+import java.util.List;
+
+//implementacao das consultas de LoanRepositoryCustom (o Spring Data junta pelo sufixo Impl)
+public class LoanRepositoryImpl implements LoanRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<LoanHistory> findHistory(String customer, String isbn, Boolean returned, Long beforeId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<LoanHistory> query = cb.createQuery(LoanHistory.class);
+        Root<Loan> loan = query.from(Loan.class);
+        Join<Loan, Book> book = loan.join("book");
+
+        //so os predicados informados entram no sql, para o banco escolher o indice certo
+        List<Predicate> predicates = new ArrayList<>();
+        if (customer != null) {
+            predicates.add(cb.equal(loan.get("customer"), customer));
+        }
+        if (isbn != null) {
+            predicates.add(cb.equal(book.get("isbn"), isbn));
+        }
+        if (returned != null) {
+            predicates.add(cb.equal(loan.get("returned"), returned));
+        }
+        if (beforeId != null) {
+            predicates.add(cb.lessThan(loan.get("id"), beforeId));
+        }
+
+        query.select(cb.construct(LoanHistory.class,
+                        loan.get("id"), loan.get("customer"), loan.get("loanDate"), loan.get("returned"),
+                        book.get("id"), book.get("title"), book.get("isbn")))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(loan.get("id")));
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,10 @@
+package com.library.api.model.repository;
+
+//projecao usada na devolucao em lote: id, isbn do livro e situacao, sem carregar entidades
+public interface LoanStatus {
+    Long getId();
+
+    String getIsbn();
+
+    Boolean getReturned();
+}
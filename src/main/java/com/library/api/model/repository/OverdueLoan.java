@@ -0,0 +1,14 @@
+package com.library.api.model.repository;
+
+import java.time.LocalDate;
+
+//projecao da varredura de atrasados: so colunas da tabela loan, sem entidade nem join com book
+public interface OverdueLoan {
+    Long getId();
+
+    String getCustomer();
+
+    Long getBookId();
+
+    LocalDate getLoanDate();
+}
@@ -0,0 +1,16 @@
+package com.library.api.service;
+
+import com.library.api.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+//consulta em lote: livros na ordem pedida (ids, depois isbns) e as chaves sem livro
+@Getter
+@AllArgsConstructor
+public class BookBatch {
+    private final List<Book> books;
+    private final List<Long> missingIds;
+    private final List<String> missingIsbns;
+}
@@ -0,0 +1,76 @@
+package com.library.api.service;
+
+import com.library.api.exceptions.BusinessException;
+import com.library.api.model.Book;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/*
+ * Posicao da paginacao por keyset: ultimo (sortKey, id) devolvido.
+ * Vai para o cliente como token opaco (base64url de "propriedade:direcao:id[:valor]").
+ */
+@Getter
+public class BookCursor {
+
+    public static final List<String> SORTABLE = Arrays.asList("id", "title", "author", "isbn");
+
+    private final Sort.Order order;
+    private final Long id;
+    private final String key;
+
+    public BookCursor(Sort.Order order, Long id, String key) {
+        this.order = order;
+        this.id = id;
+        this.key = key;
+    }
+
+    public static BookCursor after(Book book, Sort.Order order) {
+        return new BookCursor(order, book.getId(), "id".equals(order.getProperty()) ? null : keyOf(book, order.getProperty()));
+    }
+
+    public static Sort.Order validOrder(Sort sort) {
+        Sort.Order order = sort.isSorted() ? sort.iterator().next() : Sort.Order.asc("id");
+        if (!SORTABLE.contains(order.getProperty())) {
+            throw new BusinessException("ordenação não suportada: " + order.getProperty());
+        }
+        return order;
+    }
+
+    public String encode() {
+        StringBuilder token = new StringBuilder()
+                .append(order.getProperty()).append(':')
+                .append(order.getDirection()).append(':')
+                .append(id);
+        if (key != null) {
+            token.append(':').append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BookCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 4);
+            Sort.Order order = new Sort.Order(Sort.Direction.valueOf(parts[1]), parts[0]);
+            if (!SORTABLE.contains(order.getProperty())) {
+                throw new IllegalArgumentException(order.getProperty());
+            }
+            return new BookCursor(order, Long.valueOf(parts[2]), parts.length == 4 ? parts[3] : null);
+        } catch (RuntimeException ex) {
+            throw new BusinessException("cursor inválido");
+        }
+    }
+
+    private static String keyOf(Book book, String property) {
+        switch (property) {
+            case "title": return book.getTitle();
+            case "author": return book.getAuthor();
+            default: return book.getIsbn();
+        }
+    }
+}
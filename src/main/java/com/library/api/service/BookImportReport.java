@@ -0,0 +1,59 @@
+package com.library.api.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//resultado da importacao; guarda no maximo maxErrors erros para a resposta nao crescer com o arquivo
+@Getter
+public class BookImportReport {
+
+    private long received;
+    private long imported;
+    private long rejected;
+    private long elapsedMillis;
+    private double booksPerSecond;
+    private final List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+
+    @JsonIgnore
+    private final int maxErrors;
+
+    public BookImportReport(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public void received() {
+        received++;
+    }
+
+    public void imported(int count) {
+        imported += count;
+    }
+
+    public void reject(long line, String isbn, String message) {
+        rejected++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(line, isbn, message));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+
+    public void finish(long elapsedNanos) {
+        elapsedMillis = elapsedNanos / 1_000_000;
+        booksPerSecond = elapsedNanos == 0 ? 0 : imported * 1_000_000_000d / elapsedNanos;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private String isbn;
+        private String message;
+    }
+}
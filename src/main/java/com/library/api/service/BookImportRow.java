@@ -0,0 +1,33 @@
+package com.library.api.service;
+
+import com.library.api.model.Book;
+import lombok.Getter;
+
+//uma linha do arquivo de importacao: um livro valido ou o erro de leitura/validacao
+@Getter
+public class BookImportRow {
+
+    private final long line;
+    private final Book book;
+    private final String isbn;
+    private final String error;
+
+    private BookImportRow(long line, Book book, String isbn, String error) {
+        this.line = line;
+        this.book = book;
+        this.isbn = isbn;
+        this.error = error;
+    }
+
+    public static BookImportRow valid(long line, Book book) {
+        return new BookImportRow(line, book, book.getIsbn(), null);
+    }
+
+    public static BookImportRow invalid(long line, String isbn, String error) {
+        return new BookImportRow(line, null, isbn, error);
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+}
@@ -1,10 +1,18 @@
 package com.library.api.service;
 
 import com.library.api.model.Book;
+import com.library.api.model.repository.BookView;
+import com.library.api.service.search.CountStrategy;
+import com.library.api.service.search.CountedPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface BookService {
     Book save(Book book);
@@ -15,7 +23,36 @@ public interface BookService {
 
     Book update(Book book);
 
+    //varios livros por id e/ou isbn, em consultas IN por lote; chaves repetidas contam uma vez
+    BookBatch getAll(Collection<Long> ids, Collection<String> isbns);
+
+    //versao atual do livro, sem carregar o livro quando ele nao esta no cache
+    Optional<Long> getVersion(Long id);
+
+    /*
+     * Update/delete num unico statement pelo id, sem ler o livro antes. Com versions (If-Match) so
+     * altera se a versao atual estiver entre elas; versions null = incondicional.
+     * Vazio/false quando o livro nao existe; OptimisticLockingFailureException quando a versao mudou.
+     */
+    Optional<Book> update(Long id, String title, String author, Collection<Long> versions);
+
+    boolean delete(Long id, Collection<Long> versions);
+
     Page<Book> find(Book filter, Pageable pageRequest);
 
+    CountedPage<Book> find(Book filter, Pageable pageRequest, CountStrategy countStrategy);
+
+    //mesma busca do find, lida direto em projecoes somente leitura (sem entidades gerenciadas)
+    CountedPage<BookView> findViews(Book filter, Pageable pageRequest, CountStrategy countStrategy);
+
+    //paginacao por keyset: sem offset e sem count, custo constante em qualquer profundidade
+    Slice<Book> findAfter(Book filter, BookCursor after, Sort.Order order, int size);
+
     Optional<Book> getBookByIsbn(String isbn);
+
+    //consome as linhas em lotes, sem carregar o arquivo inteiro
+    BookImportReport importBooks(Iterator<BookImportRow> rows);
+
+    //entrega cada livro do filtro ao consumer direto do cursor do banco, em ordem de id
+    void export(Book filter, Consumer<Book> consumer);
 }
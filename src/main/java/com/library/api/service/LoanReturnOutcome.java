@@ -0,0 +1,20 @@
+package com.library.api.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//resultado da devolucao de um item do lote, pedido por id do emprestimo ou por isbn
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LoanReturnOutcome {
+
+    public enum Status { RETURNED, ALREADY_RETURNED, NOT_FOUND }
+
+    private Long id;
+    private String isbn;
+    private Status status;
+}
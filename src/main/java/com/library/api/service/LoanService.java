@@ -1,7 +1,21 @@
 package com.library.api.service;
 
 import com.library.api.model.Loan;
+import com.library.api.model.repository.LoanHistory;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface LoanService {
     Loan save(Loan loan);
+
+    //livro com emprestimo ainda nao devolvido
+    boolean isLoaned(Long bookId);
+
+    //devolve em lote por id do emprestimo e/ou isbn do livro; um resultado por item, na ordem pedida
+    List<LoanReturnOutcome> returnLoans(Collection<Long> ids, Collection<String> isbns);
+
+    //historico por cliente/isbn/situacao, do mais recente para o mais antigo, continuando antes de beforeId
+    Slice<LoanHistory> findHistory(String customer, String isbn, Boolean returned, Long beforeId, int size);
 }
@@ -0,0 +1,193 @@
+package com.library.api.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.library.api.model.Book;
+import com.library.api.model.repository.BookRepository;
+import com.library.api.service.event.BookChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+
+/*
+ * Cache read-through (Caffeine, eviction W-TinyLFU) das consultas por id e por isbn.
+ * O cache por isbn guarda so o id: os dados do livro ficam num lugar so, e uma isbn alterada
+ * e percebida na leitura. Ausencias tambem sao guardadas, com TTL proprio mais curto.
+ * Quem chama recebe sempre uma copia, entao alterar o livro devolvido nao altera o cache.
+ */
+@Component
+public class BookLookupCache {
+
+    private final BookRepository repository;
+    private final Cache<Long, Optional<Book>> byId;
+    private final Cache<String, Optional<Long>> byIsbn;
+
+    public BookLookupCache(BookRepository repository, MeterRegistry meterRegistry,
+                           @Value("${library.book-cache.max-size:10000}") long maxSize,
+                           @Value("${library.book-cache.ttl:10m}") Duration ttl,
+                           @Value("${library.book-cache.negative-ttl:30s}") Duration negativeTtl) {
+        this.repository = repository;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new LookupExpiry<Long, Book>(ttl, negativeTtl))
+                .recordStats()
+                .build();
+        this.byIsbn = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new LookupExpiry<String, Long>(ttl, negativeTtl))
+                .recordStats()
+                .build();
+        //cache.gets{result=hit|miss}, cache.evictions, cache.size...
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "books.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, byIsbn, "books.by-isbn");
+    }
+
+    public Optional<Book> findById(Long id) {
+        if (id == null) {
+            return repository.findById(id);
+        }
+        return byId.get(id, key -> repository.findById(key).map(BookLookupCache::copy)).map(BookLookupCache::copy);
+    }
+
+    public Optional<Book> findByIsbn(String isbn) {
+        Optional<Long> id = byIsbn.get(isbn, key -> repository.findByIsbn(key).map(Book::getId));
+        if (!id.isPresent()) {
+            return Optional.empty();
+        }
+        Optional<Book> book = findById(id.get());
+        if (book.isPresent() && isbn.equals(book.get().getIsbn())) {
+            return book;
+        }
+        //livro removido ou isbn alterada depois que o id foi guardado
+        byIsbn.invalidate(isbn);
+        return repository.findByIsbn(isbn).map(BookLookupCache::copy);
+    }
+
+    //varios ids de uma vez: os que faltam no cache vao juntos para o loader (IN em lotes)
+    public Map<Long, Book> findAllById(Collection<Long> ids, Function<Collection<Long>, List<Book>> loader) {
+        Map<Long, Optional<Book>> cached = byId.getAll(ids, missing -> {
+            Map<Long, Optional<Book>> loaded = new HashMap<>();
+            List<Long> keys = new ArrayList<>();
+            for (Long id : missing) {
+                keys.add(id);
+                loaded.put(id, Optional.empty());
+            }
+            for (Book book : loader.apply(keys)) {
+                loaded.put(book.getId(), Optional.of(copy(book)));
+            }
+            return loaded;
+        });
+        Map<Long, Book> found = new HashMap<>();
+        cached.forEach((id, book) -> book.ifPresent(value -> found.put(id, copy(value))));
+        return found;
+    }
+
+    //varias isbns de uma vez; os livros lidos pela isbn ja entram no cache por id
+    public Map<String, Book> findAllByIsbn(Collection<String> isbns, Function<Collection<String>, List<Book>> isbnLoader,
+                                           Function<Collection<Long>, List<Book>> idLoader) {
+        Map<String, Optional<Long>> ids = byIsbn.getAll(isbns, missing -> {
+            Map<String, Optional<Long>> loaded = new HashMap<>();
+            List<String> keys = new ArrayList<>();
+            for (String isbn : missing) {
+                keys.add(isbn);
+                loaded.put(isbn, Optional.empty());
+            }
+            for (Book book : isbnLoader.apply(keys)) {
+                loaded.put(book.getIsbn(), Optional.of(book.getId()));
+                byId.put(book.getId(), Optional.of(copy(book)));
+            }
+            return loaded;
+        });
+        Set<Long> bookIds = new HashSet<>();
+        ids.values().forEach(id -> id.ifPresent(bookIds::add));
+        Map<Long, Book> books = findAllById(bookIds, idLoader);
+
+        Map<String, Book> found = new HashMap<>();
+        List<String> stale = new ArrayList<>();
+        ids.forEach((isbn, id) -> {
+            Book book = id.map(books::get).orElse(null);
+            if (book != null && isbn.equals(book.getIsbn())) {
+                found.put(isbn, book);
+            } else if (id.isPresent()) {
+                stale.add(isbn);
+            }
+        });
+        //livro removido ou isbn alterada depois que o id foi guardado: vai direto ao banco
+        if (!stale.isEmpty()) {
+            byIsbn.invalidateAll(stale);
+            for (Book book : isbnLoader.apply(stale)) {
+                found.put(book.getIsbn(), copy(book));
+            }
+        }
+        return found;
+    }
+
+    //versao do livro se ele estiver no cache; nao consulta o banco
+    public Optional<Long> cachedVersion(Long id) {
+        Optional<Book> book = id == null ? null : byId.getIfPresent(id);
+        return book == null ? Optional.empty() : book.map(Book::getVersion);
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        Book book = event.getBook();
+        if (book == null) {
+            return;
+        }
+        if (book.getId() != null) {
+            byId.invalidate(book.getId());
+        }
+        //um livro criado com isbn antes consultada derruba a ausencia guardada
+        if (book.getIsbn() != null) {
+            byIsbn.invalidate(book.getIsbn());
+        }
+    }
+
+    public void invalidateAll() {
+        byId.invalidateAll();
+        byIsbn.invalidateAll();
+    }
+
+    public static Book copy(Book book) {
+        return Book.builder()
+                .id(book.getId())
+                .title(book.getTitle())
+                .author(book.getAuthor())
+                .isbn(book.getIsbn())
+                .version(book.getVersion())
+                .build();
+    }
+
+    //presentes vivem ttl, ausencias vivem negativeTtl
+    private static class LookupExpiry<K, V> implements Expiry<K, Optional<V>> {
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        LookupExpiry(Duration ttl, Duration negativeTtl) {
+            this.ttlNanos = ttl.toNanos();
+            this.negativeTtlNanos = negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(K key, Optional<V> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(K key, Optional<V> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(K key, Optional<V> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.library.api.service.coalesce;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/*
+ * Chamadas identicas simultaneas compartilham uma unica execucao: a primeira (leader) executa,
+ * as que chegam enquanto ela roda (followers) esperam e recebem o mesmo resultado, ou a mesma excecao.
+ * Quem chega depois do fim executa de novo; nada fica guardado. share entrega aos followers uma
+ * copia quando o resultado e mutavel.
+ * Metricas: coalescing.calls{operation, role=leader|follower} e coalescing.ratio (followers / total).
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final UnaryOperator<V> share;
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong followers = new AtomicLong();
+
+    public SingleFlight(String operation, MeterRegistry meterRegistry, UnaryOperator<V> share) {
+        this.share = share;
+        FunctionCounter.builder("coalescing.calls", leaders, AtomicLong::get)
+                .description("chamadas que executaram a consulta")
+                .tags("operation", operation, "role", "leader")
+                .register(meterRegistry);
+        FunctionCounter.builder("coalescing.calls", followers, AtomicLong::get)
+                .description("chamadas que aproveitaram uma consulta em andamento")
+                .tags("operation", operation, "role", "follower")
+                .register(meterRegistry);
+        Gauge.builder("coalescing.ratio", this, SingleFlight::ratio)
+                .description("fracao das chamadas atendidas por uma consulta em andamento")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            followers.incrementAndGet();
+            return share.apply(join(running));
+        }
+        leaders.incrementAndGet();
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error ex) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(ex);
+            throw ex;
+        }
+        //sai do mapa antes de completar: quem chega depois do resultado executa de novo
+        inFlight.remove(key, mine);
+        mine.complete(value);
+        return value;
+    }
+
+    private V join(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
+    private double ratio() {
+        long coalesced = followers.get();
+        long total = leaders.get() + coalesced;
+        return total == 0 ? 0 : (double) coalesced / total;
+    }
+}
@@ -0,0 +1,31 @@
+package com.library.api.service.event;
+
+import com.library.api.model.Book;
+import lombok.Getter;
+
+//publicado pelo BookService depois de cada escrita; indices e caches escutam esse evento
+@Getter
+public class BookChangedEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final Book book;
+
+    public BookChangedEvent(Type type, Book book) {
+        this.type = type;
+        this.book = book;
+    }
+
+    public static BookChangedEvent created(Book book){
+        return new BookChangedEvent(Type.CREATED, book);
+    }
+
+    public static BookChangedEvent updated(Book book){
+        return new BookChangedEvent(Type.UPDATED, book);
+    }
+
+    public static BookChangedEvent deleted(Book book){
+        return new BookChangedEvent(Type.DELETED, book);
+    }
+}
@@ -0,0 +1,20 @@
+package com.library.api.service.event;
+
+import com.library.api.model.repository.OverdueLoan;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+//um lote de emprestimos atrasados encontrado pela varredura; os listeners rodam nas threads do job
+@Getter
+public class LoansOverdueEvent {
+
+    private final LocalDate cutoff;
+    private final List<OverdueLoan> loans;
+
+    public LoansOverdueEvent(LocalDate cutoff, List<OverdueLoan> loans) {
+        this.cutoff = cutoff;
+        this.loans = loans;
+    }
+}
@@ -2,36 +2,126 @@ package com.library.api.service.impl;
 
 import com.library.api.exceptions.BusinessException;
 import com.library.api.model.Book;
+import com.library.api.model.repository.BookBatchWriter;
 import com.library.api.model.repository.BookRepository;
+import com.library.api.model.repository.BookView;
+import com.library.api.service.BookBatch;
+import com.library.api.service.BookCursor;
+import com.library.api.service.BookImportReport;
+import com.library.api.service.BookImportRow;
 import com.library.api.service.BookService;
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import com.library.api.service.cache.BookLookupCache;
+import com.library.api.service.coalesce.SingleFlight;
+import com.library.api.service.event.BookChangedEvent;
+import com.library.api.service.search.BookCountCache;
+import com.library.api.service.search.BookSearchIndex;
+import com.library.api.service.search.CountStrategy;
+import com.library.api.service.search.CountedPage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.*;
+import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class BookServiceImpl implements BookService {
 
     private BookRepository repository;
+    private BookBatchWriter batchWriter;
+    private BookSearchIndex searchIndex;
+    private BookCountCache countCache;
+    private BookLookupCache lookupCache;
+    private ApplicationEventPublisher eventPublisher;
+    private int importBatchSize = 500;
+    private int importMaxErrors = 1000;
+    private int exportFetchSize = 1000;
+    private int batchMaxKeys = 500;
+    private int batchChunkSize = 100;
+    //consultas simultaneas do mesmo id/isbn (titulo em alta) viram uma so; cada chamador recebe sua copia
+    private SingleFlight<Long, Optional<Book>> byIdFlights;
+    private SingleFlight<String, Optional<Book>> byIsbnFlights;
 
     public BookServiceImpl(BookRepository repository) {
+        this(repository, null, null, event -> { });
+    }
+
+    public BookServiceImpl(BookRepository repository, BookSearchIndex searchIndex, BookCountCache countCache,
+                           ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
+        this.searchIndex = searchIndex;
+        this.countCache = countCache;
+        this.eventPublisher = eventPublisher;
+        coalesce(new SimpleMeterRegistry());
+    }
+
+    public BookServiceImpl(BookRepository repository, BookSearchIndex searchIndex, BookCountCache countCache,
+                           ApplicationEventPublisher eventPublisher, BookBatchWriter batchWriter,
+                           BookLookupCache lookupCache, int importBatchSize, int importMaxErrors, int exportFetchSize,
+                           int batchMaxKeys, int batchChunkSize) {
+        this(repository, searchIndex, countCache, eventPublisher, batchWriter, lookupCache, importBatchSize,
+                importMaxErrors, exportFetchSize, batchMaxKeys, batchChunkSize, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public BookServiceImpl(BookRepository repository, BookSearchIndex searchIndex, BookCountCache countCache,
+                           ApplicationEventPublisher eventPublisher, BookBatchWriter batchWriter,
+                           BookLookupCache lookupCache,
+                           @Value("${library.import.batch-size:500}") int importBatchSize,
+                           @Value("${library.import.max-reported-errors:1000}") int importMaxErrors,
+                           @Value("${library.export.fetch-size:1000}") int exportFetchSize,
+                           @Value("${library.book-batch.max-keys:500}") int batchMaxKeys,
+                           @Value("${library.book-batch.chunk-size:100}") int batchChunkSize,
+                           MeterRegistry meterRegistry) {
+        this(repository, searchIndex, countCache, eventPublisher);
+        this.batchWriter = batchWriter;
+        this.lookupCache = lookupCache;
+        this.importBatchSize = importBatchSize;
+        this.importMaxErrors = importMaxErrors;
+        this.exportFetchSize = exportFetchSize;
+        this.batchMaxKeys = batchMaxKeys;
+        this.batchChunkSize = batchChunkSize;
+        coalesce(meterRegistry);
+    }
+
+    private void coalesce(MeterRegistry meterRegistry) {
+        this.byIdFlights = new SingleFlight<>("books.by-id", meterRegistry, book -> book.map(BookLookupCache::copy));
+        this.byIsbnFlights = new SingleFlight<>("books.by-isbn", meterRegistry, book -> book.map(BookLookupCache::copy));
     }
 
     @Override
     public Book save(Book book) {
-        if(repository.existsByIsbn(book.getIsbn())){
-            throw new BusinessException("isbn já cadastrada");
+        //um unico insert: a unicidade do isbn fica com o indice uk_book_isbn, inclusive entre requisicoes concorrentes
+        Book saved;
+        try {
+            saved = repository.saveAndFlush(book);
+        } catch (DataIntegrityViolationException ex) {
+            if (isDuplicateIsbn(ex)) {
+                throw new BusinessException("isbn já cadastrada");
+            }
+            throw ex;
         }
-        return repository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.created(saved));
+        return saved;
     }
 
     @Override
     public Optional<Book> getById(Long id) {
-        return this.repository.findById(id);
+        if (id == null) {
+            return this.repository.findById(id);
+        }
+        return byIdFlights.execute(id, () -> lookupCache != null
+                ? lookupCache.findById(id)
+                : this.repository.findById(id));
     }
 
     @Override
@@ -40,6 +130,7 @@ public class BookServiceImpl implements BookService {
             throw new IllegalArgumentException(" id do livro não pode ser null");
         }
         this.repository.delete(book);
+        eventPublisher.publishEvent(BookChangedEvent.deleted(book));
     }
 
     @Override
@@ -47,21 +138,213 @@ public class BookServiceImpl implements BookService {
         if(book == null || book.getId() == null){
             throw new IllegalArgumentException(" id do livro não pode ser null");
         }
-       return this.repository.save(book);
+        Book updated = this.repository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.updated(updated));
+        return updated;
+    }
+
+    @Override
+    public BookBatch getAll(Collection<Long> ids, Collection<String> isbns) {
+        Set<Long> uniqueIds = ids == null ? Collections.emptySet() : new LinkedHashSet<>(ids);
+        Set<String> uniqueIsbns = isbns == null ? Collections.emptySet() : new LinkedHashSet<>(isbns);
+        uniqueIds.remove(null);
+        uniqueIsbns.remove(null);
+        if (uniqueIds.isEmpty() && uniqueIsbns.isEmpty()) {
+            throw new BusinessException("informe ids ou isbns dos livros");
+        }
+        if (uniqueIds.size() + uniqueIsbns.size() > batchMaxKeys) {
+            throw new BusinessException("no máximo " + batchMaxKeys + " livros por consulta");
+        }
+
+        Map<Long, Book> byId = Collections.emptyMap();
+        Map<String, Book> byIsbn = Collections.emptyMap();
+        if (lookupCache != null) {
+            if (!uniqueIds.isEmpty()) {
+                byId = lookupCache.findAllById(uniqueIds, this::loadByIds);
+            }
+            if (!uniqueIsbns.isEmpty()) {
+                byIsbn = lookupCache.findAllByIsbn(uniqueIsbns, this::loadByIsbns, this::loadByIds);
+            }
+        } else {
+            byId = new HashMap<>();
+            for (Book book : loadByIds(uniqueIds)) {
+                byId.put(book.getId(), book);
+            }
+            byIsbn = new HashMap<>();
+            for (Book book : loadByIsbns(uniqueIsbns)) {
+                byIsbn.put(book.getIsbn(), book);
+            }
+        }
+
+        List<Book> books = new ArrayList<>(uniqueIds.size() + uniqueIsbns.size());
+        List<Long> missingIds = new ArrayList<>();
+        List<String> missingIsbns = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            Book book = byId.get(id);
+            if (book != null) {
+                books.add(book);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        for (String isbn : uniqueIsbns) {
+            Book book = byIsbn.get(isbn);
+            if (book != null) {
+                books.add(book);
+            } else {
+                missingIsbns.add(isbn);
+            }
+        }
+        return new BookBatch(books, missingIds, missingIsbns);
+    }
+
+    private List<Book> loadByIds(Collection<Long> ids) {
+        List<Book> books = new ArrayList<>(ids.size());
+        for (List<Long> chunk : chunks(new ArrayList<>(ids))) {
+            books.addAll(repository.findAllById(chunk));
+        }
+        return books;
+    }
+
+    private List<Book> loadByIsbns(Collection<String> isbns) {
+        List<Book> books = new ArrayList<>(isbns.size());
+        for (List<String> chunk : chunks(new ArrayList<>(isbns))) {
+            books.addAll(repository.findByIsbnIn(chunk));
+        }
+        return books;
+    }
+
+    private <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += batchChunkSize) {
+            chunks.add(items.subList(from, Math.min(items.size(), from + batchChunkSize)));
+        }
+        return chunks;
+    }
+
+    @Override
+    public Optional<Long> getVersion(Long id) {
+        if (lookupCache != null) {
+            Optional<Long> cached = lookupCache.cachedVersion(id);
+            if (cached.isPresent()) {
+                return cached;
+            }
+        }
+        return repository.findVersionById(id);
+    }
+
+    @Override
+    public Optional<Book> update(Long id, String title, String author, Collection<Long> versions) {
+        if(id == null){
+            throw new IllegalArgumentException(" id do livro não pode ser null");
+        }
+        int updated = versions == null
+                ? repository.updateTitleAndAuthor(id, title, author)
+                : repository.updateIfVersion(id, title, author, versions);
+        if (updated == 0) {
+            preconditionFailed(id, versions);
+            return Optional.empty();
+        }
+        //releitura depois do update para devolver a isbn e a nova versao (ETag); direto no banco, fora do
+        //byIdFlights: um GET em andamento iniciado antes do update devolveria a versao antiga.
+        //O evento leva o livro relido, com todos os campos (o indice de busca reindexa a linha inteira)
+        Optional<Book> book = repository.findById(id);
+        book.ifPresent(updatedBook -> eventPublisher.publishEvent(BookChangedEvent.updated(updatedBook)));
+        return book;
+    }
+
+    @Override
+    public boolean delete(Long id, Collection<Long> versions) {
+        if(id == null){
+            throw new IllegalArgumentException(" id do livro não pode ser null");
+        }
+        int deleted = versions == null ? repository.deleteWhereId(id) : repository.deleteIfVersion(id, versions);
+        if (deleted == 0) {
+            preconditionFailed(id, versions);
+            return false;
+        }
+        eventPublisher.publishEvent(BookChangedEvent.deleted(Book.builder().id(id).build()));
+        return true;
+    }
+
+    //nenhuma linha afetada: se o livro existe a versao nao bateu, senao e 404
+    private void preconditionFailed(Long id, Collection<Long> versions) {
+        if (versions != null && repository.findVersionById(id).isPresent()) {
+            throw new OptimisticLockingFailureException("livro alterado por outra requisição");
+        }
     }
 
     @Override
     public Page<Book> find(Book filter, Pageable pageRequest) {
+        return find(filter, pageRequest, CountStrategy.EXACT);
+    }
 
-        Example<Book> example = Example.of(filter,
-                ExampleMatcher
-                        .matching()
-                        .withIgnoreCase()
-                        .withIgnoreNullValues()
-                        .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)
-                );
+    @Override
+    public CountedPage<Book> find(Book filter, Pageable pageRequest, CountStrategy countStrategy) {
+        return find(filter, pageRequest, countStrategy, entityRows);
+    }
+
+    //readOnly: o Hibernate roda a sessao em FlushMode.MANUAL e as projecoes nao ficam no contexto
+    @Override
+    @Transactional(readOnly = true)
+    public CountedPage<BookView> findViews(Book filter, Pageable pageRequest, CountStrategy countStrategy) {
+        return find(filter, pageRequest, countStrategy, viewRows);
+    }
+
+    private <T> CountedPage<T> find(Book filter, Pageable pageRequest, CountStrategy countStrategy, Rows<T> rows) {
+        //sem filtro e o mesmo que o livro vazio: mesma busca, mesmo count em cache
+        if (filter == null) {
+            filter = new Book();
+        }
+        //o indice ja sabe o total exato, nenhuma estrategia precisa de count
+        if (searchIndex != null && searchIndex.isReady() && isOrderedById(pageRequest)) {
+            Optional<long[]> ids = searchIndex.search(filter);
+            if (ids.isPresent()) {
+                return pageOf(ids.get(), pageRequest, rows);
+            }
+        }
+
+        Example<Book> example = exampleOf(filter);
+        if (pageRequest.isPaged() && countStrategy == CountStrategy.ESTIMATED) {
+            List<T> found = rows.matching(example, pageRequest, pageRequest.getPageSize() + 1);
+            boolean more = found.size() > pageRequest.getPageSize();
+            List<T> content = more ? found.subList(0, pageRequest.getPageSize()) : found;
+            return new CountedPage<>(content, pageRequest, pageRequest.getOffset() + found.size(),
+                    CountStrategy.ESTIMATED, !more);
+        }
+        if (pageRequest.isPaged() && countStrategy == CountStrategy.CACHED && countCache != null) {
+            Optional<Long> total = countCache.get(filter);
+            if (total.isPresent()) {
+                List<T> content = rows.matching(example, pageRequest, pageRequest.getPageSize());
+                return new CountedPage<>(content, pageRequest, total.get(), CountStrategy.CACHED, true);
+            }
+            long generation = countCache.generation();
+            Page<T> page = rows.page(example, pageRequest);
+            countCache.put(filter, page.getTotalElements(), generation);
+            return new CountedPage<>(page.getContent(), pageRequest, page.getTotalElements(), CountStrategy.CACHED, true);
+        }
 
-        return repository.findAll(example, pageRequest);
+        Page<T> page = rows.page(example, pageRequest);
+        return new CountedPage<>(page.getContent(), pageRequest, page.getTotalElements(), CountStrategy.EXACT, true);
+    }
+
+    @Override
+    public Slice<Book> findAfter(Book filter, BookCursor after, Sort.Order order, int size) {
+        Sort.Order keysetOrder = after != null ? after.getOrder() : order;
+        Long lastId = after != null ? after.getId() : null;
+        Pageable slicePage = PageRequest.of(0, size, Sort.by(keysetOrder));
+
+        if (searchIndex != null && searchIndex.isReady() && "id".equals(keysetOrder.getProperty())) {
+            Optional<long[]> ids = searchIndex.search(filter);
+            if (ids.isPresent()) {
+                return sliceOf(ids.get(), keysetOrder.isDescending(), lastId, slicePage);
+            }
+        }
+
+        List<Book> rows = repository.findAfter(exampleOf(filter), keysetOrder,
+                after != null ? after.getKey() : null, lastId, size + 1);
+        boolean hasNext = rows.size() > size;
+        return new SliceImpl<>(hasNext ? rows.subList(0, size) : rows, slicePage, hasNext);
     }
 
     @Override
@@ -69,6 +352,242 @@ public class BookServiceImpl implements BookService {
         if(isbn == null){
             throw new IllegalArgumentException(" isbn não pode ser nulo!");
         }
-        return this.repository.findByIsbn(isbn);
+        return byIsbnFlights.execute(isbn, () -> lookupCache != null
+                ? lookupCache.findByIsbn(isbn)
+                : this.repository.findByIsbn(isbn));
+    }
+
+    @Override
+    public BookImportReport importBooks(Iterator<BookImportRow> rows) {
+        long start = System.nanoTime();
+        BookImportReport report = new BookImportReport(importMaxErrors);
+        List<BookImportRow> batch = new ArrayList<>(importBatchSize);
+
+        while (rows.hasNext()) {
+            BookImportRow row = rows.next();
+            report.received();
+            if (!row.isValid()) {
+                report.reject(row.getLine(), row.getIsbn(), row.getError());
+                continue;
+            }
+            batch.add(row);
+            if (batch.size() == importBatchSize) {
+                importBatch(batch, report);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            importBatch(batch, report);
+        }
+
+        report.finish(System.nanoTime() - start);
+        return report;
+    }
+
+    private void importBatch(List<BookImportRow> batch, BookImportReport report) {
+        //isbn repetida dentro do lote e isbn ja gravada: uma consulta IN por lote.
+        //Chave normalizada nos dois lados: o banco pode devolver a isbn com outra caixa ou sem os espacos
+        //do arquivo (collation case-insensitive ou PAD SPACE)
+        Map<String, BookImportRow> byIsbn = new LinkedHashMap<>();
+        for (BookImportRow row : batch) {
+            if (byIsbn.putIfAbsent(isbnKey(row.getIsbn()), row) != null) {
+                report.reject(row.getLine(), row.getIsbn(), "isbn repetida no arquivo");
+            }
+        }
+        List<String> isbns = new ArrayList<>(byIsbn.size());
+        for (BookImportRow row : byIsbn.values()) {
+            isbns.add(row.getIsbn());
+        }
+        for (String isbn : repository.findExistingIsbns(isbns)) {
+            BookImportRow row = byIsbn.remove(isbnKey(isbn));
+            if (row != null) {
+                report.reject(row.getLine(), row.getIsbn(), "isbn já cadastrada");
+            }
+        }
+        if (byIsbn.isEmpty()) {
+            return;
+        }
+
+        List<Book> books = new ArrayList<>(byIsbn.size());
+        for (BookImportRow row : byIsbn.values()) {
+            books.add(row.getBook());
+        }
+        try {
+            batchWriter.insertAll(books);
+        } catch (DataIntegrityViolationException ex) {
+            //outra requisicao gravou uma das isbns entre a consulta e o insert: refaz o lote linha a linha
+            importOneByOne(byIsbn.values(), report);
+            return;
+        }
+        report.imported(books.size());
+        for (Book book : books) {
+            eventPublisher.publishEvent(BookChangedEvent.created(book));
+        }
+    }
+
+    private static String isbnKey(String isbn) {
+        return isbn.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void importOneByOne(Collection<BookImportRow> rows, BookImportReport report) {
+        for (BookImportRow row : rows) {
+            row.getBook().setId(null);
+            try {
+                save(row.getBook());
+                report.imported(1);
+            } catch (BusinessException ex) {
+                report.reject(row.getLine(), row.getIsbn(), ex.getMessage());
+            } catch (DataIntegrityViolationException ex) {
+                report.reject(row.getLine(), row.getIsbn(), ex.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void export(Book filter, Consumer<Book> consumer) {
+        try (Stream<Book> books = repository.streamAll(exampleOf(filter), exportFetchSize)) {
+            books.forEach(consumer);
+        }
+    }
+
+    static boolean isDuplicateIsbn(DataIntegrityViolationException ex) {
+        return ConstraintViolations.violates(ex, Book.UK_ISBN);
+    }
+
+    //o indice devolve ids em ordem crescente, entao so atende paginas sem sort ou ordenadas por id
+    private static boolean isOrderedById(Pageable pageRequest) {
+        for (Sort.Order order : pageRequest.getSort()) {
+            if (!"id".equals(order.getProperty())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private <T> CountedPage<T> pageOf(long[] ids, Pageable pageRequest, Rows<T> rows) {
+        Sort.Order idOrder = pageRequest.getSort().getOrderFor("id");
+        boolean descending = idOrder != null && idOrder.isDescending();
+
+        int from = pageRequest.isPaged() ? (int) Math.min(pageRequest.getOffset(), ids.length) : 0;
+        int to = pageRequest.isPaged() ? Math.min(from + pageRequest.getPageSize(), ids.length) : ids.length;
+
+        List<Long> pageIds = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            pageIds.add(descending ? ids[ids.length - 1 - i] : ids[i]);
+        }
+        return new CountedPage<>(rows.byIds(pageIds), pageRequest, ids.length, CountStrategy.EXACT, true);
+    }
+
+    private Slice<Book> sliceOf(long[] ids, boolean descending, Long lastId, Pageable slicePage) {
+        List<Long> sliceIds = new ArrayList<>(slicePage.getPageSize());
+        boolean hasNext;
+        if (descending) {
+            int i = lastId == null ? ids.length - 1 : lowerBound(ids, lastId) - 1;
+            for (; i >= 0 && sliceIds.size() < slicePage.getPageSize(); i--) {
+                sliceIds.add(ids[i]);
+            }
+            hasNext = i >= 0;
+        } else {
+            int i = lastId == null ? 0 : lowerBound(ids, lastId + 1);
+            for (; i < ids.length && sliceIds.size() < slicePage.getPageSize(); i++) {
+                sliceIds.add(ids[i]);
+            }
+            hasNext = i < ids.length;
+        }
+        return new SliceImpl<>(loadInOrder(sliceIds), slicePage, hasNext);
+    }
+
+    //primeira posicao com valor >= id
+    private static int lowerBound(long[] ids, long id) {
+        int pos = Arrays.binarySearch(ids, id);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    private List<BookView> loadViewsInOrder(List<Long> ids) {
+        Map<Long, BookView> loaded = new HashMap<>();
+        for (BookView view : repository.findViewsByIdIn(ids)) {
+            loaded.put(view.getId(), view);
+        }
+        List<BookView> content = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            BookView view = loaded.get(id);
+            if (view != null) {
+                content.add(view);
+            }
+        }
+        return content;
+    }
+
+    //a mesma busca le entidades (find) ou projecoes BookView (findViews)
+    private interface Rows<T> {
+        List<T> byIds(List<Long> ids);
+
+        List<T> matching(Example<Book> example, Pageable pageRequest, int limit);
+
+        Page<T> page(Example<Book> example, Pageable pageRequest);
+    }
+
+    private final Rows<Book> entityRows = new Rows<Book>() {
+        @Override
+        public List<Book> byIds(List<Long> ids) {
+            return loadInOrder(ids);
+        }
+
+        @Override
+        public List<Book> matching(Example<Book> example, Pageable pageRequest, int limit) {
+            return repository.findContent(example, pageRequest, limit);
+        }
+
+        @Override
+        public Page<Book> page(Example<Book> example, Pageable pageRequest) {
+            return repository.findAll(example, pageRequest);
+        }
+    };
+
+    private final Rows<BookView> viewRows = new Rows<BookView>() {
+        @Override
+        public List<BookView> byIds(List<Long> ids) {
+            return loadViewsInOrder(ids);
+        }
+
+        @Override
+        public List<BookView> matching(Example<Book> example, Pageable pageRequest, int limit) {
+            return repository.findViews(example, pageRequest, limit);
+        }
+
+        //count so quando a pagina nao basta para saber o total, como no findAll(Example, Pageable)
+        @Override
+        public Page<BookView> page(Example<Book> example, Pageable pageRequest) {
+            List<BookView> content = repository.findViews(example, pageRequest, pageRequest.isPaged() ? pageRequest.getPageSize() : 0);
+            return PageableExecutionUtils.getPage(content, pageRequest, () -> repository.count(example));
+        }
+    };
+
+    private List<Book> loadInOrder(List<Long> ids) {
+        Map<Long, Book> loaded = new HashMap<>();
+        for (Book book : repository.findAllById(ids)) {
+            loaded.put(book.getId(), book);
+        }
+        List<Book> content = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Book book = loaded.get(id);
+            if (book != null) {
+                content.add(book);
+            }
+        }
+        return content;
+    }
+
+    //o id do filtro vem do BookDTO (long, default 0) e nao faz parte da busca
+    private static Example<Book> exampleOf(Book filter) {
+        return Example.of(filter,
+                ExampleMatcher
+                        .matching()
+                        .withIgnoreCase()
+                        .withIgnoreNullValues()
+                        .withIgnorePaths("id")
+                        .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)
+                );
     }
 }
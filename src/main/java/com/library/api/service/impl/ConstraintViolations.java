@@ -0,0 +1,24 @@
+package com.library.api.service.impl;
+
+import org.hibernate.exception.ConstraintViolationException;
+
+import java.util.Locale;
+
+//identifica pelo nome qual constraint do banco gerou a violacao (H2 e MySQL devolvem o nome em maiusculas ou no texto)
+final class ConstraintViolations {
+
+    private ConstraintViolations() {
+    }
+
+    static boolean violates(RuntimeException ex, String constraint) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            String name = cause instanceof ConstraintViolationException
+                    ? ((ConstraintViolationException) cause).getConstraintName()
+                    : cause.getMessage();
+            if (name != null && name.toLowerCase(Locale.ROOT).contains(constraint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,205 @@
+package com.library.api.service.impl;
+
+import com.library.api.exceptions.BusinessException;
+import com.library.api.model.Loan;
+import com.library.api.model.repository.LoanHistory;
+import com.library.api.model.repository.LoanRepository;
+import com.library.api.model.repository.LoanStatus;
+import com.library.api.service.LoanReturnOutcome;
+import com.library.api.service.LoanService;
+import com.library.api.service.lock.KeyedLocks;
+import com.library.api.service.writebehind.LoanWriteBehindQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+@Service
+public class LoanServiceImpl implements LoanService {
+
+    private LoanRepository repository;
+    private final KeyedLocks bookLocks = new KeyedLocks();
+    private int returnChunkSize;
+    private int returnMaxItems;
+    private LoanWriteBehindQueue writeBehind;
+
+    public LoanServiceImpl(LoanRepository repository) {
+        this(repository, 500, 5000);
+    }
+
+    public LoanServiceImpl(LoanRepository repository, int returnChunkSize, int returnMaxItems) {
+        this(repository, returnChunkSize, returnMaxItems, null);
+    }
+
+    @Autowired
+    public LoanServiceImpl(LoanRepository repository,
+                           @Value("${library.loan.return-chunk-size:500}") int returnChunkSize,
+                           @Value("${library.loan.return-max-items:5000}") int returnMaxItems,
+                           LoanWriteBehindQueue writeBehind) {
+        this.repository = repository;
+        this.returnChunkSize = returnChunkSize;
+        this.returnMaxItems = returnMaxItems;
+        this.writeBehind = writeBehind != null && writeBehind.isEnabled() ? writeBehind : null;
+    }
+
+    /*
+     * O lock por livro so evita que pedidos simultaneos nesta instancia cheguem ao banco:
+     * quem nao consegue o lock falha na hora em vez de esperar. Entre instancias quem garante
+     * um unico emprestimo ativo e o indice unico uk_loan_active_book.
+     * Em write-behind o emprestimo validado vai para a fila e a chamada espera o commit do lote.
+     */
+    @Override
+    public Loan save(Loan loan) {
+        if (loan.getBook() == null || loan.getBook().getId() == null) {
+            throw new IllegalArgumentException(" livro do empréstimo não pode ser null");
+        }
+        Long bookId = loan.getBook().getId();
+        if (!bookLocks.tryLock(bookId)) {
+            throw new BusinessException("book loan in progress, try again");
+        }
+        CompletableFuture<Loan> queued;
+        try {
+            if (isLoaned(bookId)) {
+                throw new BusinessException("book already borrowed");
+            }
+            loan.setActiveBookId(loan.isReturned() ? null : bookId);
+            if (writeBehind == null) {
+                return repository.saveAndFlush(loan);
+            }
+            queued = writeBehind.submit(loan);
+        } catch (DataIntegrityViolationException ex) {
+            throw translate(ex);
+        } finally {
+            bookLocks.unlock(bookId);
+        }
+        return await(queued);
+    }
+
+    private Loan await(CompletableFuture<Loan> queued) {
+        try {
+            return queued.get();
+        } catch (InterruptedException ex) {
+            //o emprestimo continua na fila e pode ser gravado depois
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("espera pela gravação do empréstimo interrompida", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw translate((RuntimeException) cause);
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    //a fila devolve a excecao do flush como veio (traduzida para DataIntegrityViolation ou PersistenceException do JPA)
+    private RuntimeException translate(RuntimeException ex) {
+        if (ConstraintViolations.violates(ex, Loan.UK_ACTIVE_BOOK)) {
+            return new BusinessException("book already borrowed");
+        }
+        return ex;
+    }
+
+    @Override
+    public boolean isLoaned(Long bookId) {
+        return repository.existsByBookIdAndReturnedFalse(bookId);
+    }
+
+    /*
+     * Por lote de ate returnChunkSize itens: um select da situacao (projecao, sem entidades), um
+     * select ... for update dos ainda abertos e um unico update ... where id in (...). Quem trava decide:
+     * numa devolucao concorrente do mesmo emprestimo so uma delas devolve, a outra recebe ALREADY_RETURNED.
+     * As isbns viram ids antes (emprestimo ativo do livro), entao um emprestimo pedido por id e por isbn
+     * e devolvido uma vez e os dois itens recebem o mesmo resultado. Itens repetidos contam uma vez.
+     */
+    @Override
+    @Transactional
+    public List<LoanReturnOutcome> returnLoans(Collection<Long> ids, Collection<String> isbns) {
+        Set<Long> uniqueIds = ids == null ? Collections.emptySet() : new LinkedHashSet<>(ids);
+        Set<String> uniqueIsbns = isbns == null ? Collections.emptySet() : new LinkedHashSet<>(isbns);
+        uniqueIds.remove(null);
+        uniqueIsbns.remove(null);
+        if (uniqueIds.isEmpty() && uniqueIsbns.isEmpty()) {
+            throw new BusinessException("informe ids ou isbns dos empréstimos");
+        }
+        if (uniqueIds.size() + uniqueIsbns.size() > returnMaxItems) {
+            throw new BusinessException("no máximo " + returnMaxItems + " empréstimos por devolução");
+        }
+
+        Map<String, Long> byIsbn = new HashMap<>();
+        for (List<String> chunk : chunks(new ArrayList<>(uniqueIsbns))) {
+            for (LoanStatus status : repository.findActiveByIsbnIn(chunk)) {
+                byIsbn.put(status.getIsbn(), status.getId());
+            }
+        }
+        Set<Long> loanIds = new LinkedHashSet<>(uniqueIds);
+        loanIds.addAll(byIsbn.values());
+
+        Map<Long, LoanReturnOutcome> byId = new HashMap<>();
+        for (List<Long> chunk : chunks(new ArrayList<>(loanIds))) {
+            returnChunk(chunk, byId);
+        }
+
+        List<LoanReturnOutcome> outcomes = new ArrayList<>(uniqueIds.size() + uniqueIsbns.size());
+        for (Long id : uniqueIds) {
+            outcomes.add(byId.get(id));
+        }
+        for (String isbn : uniqueIsbns) {
+            Long id = byIsbn.get(isbn);
+            outcomes.add(id == null
+                    ? new LoanReturnOutcome(null, isbn, LoanReturnOutcome.Status.NOT_FOUND)
+                    : new LoanReturnOutcome(id, isbn, byId.get(id).getStatus()));
+        }
+        return outcomes;
+    }
+
+    private void returnChunk(List<Long> chunk, Map<Long, LoanReturnOutcome> byId) {
+        Map<Long, String> found = new HashMap<>();
+        List<Long> open = new ArrayList<>();
+        for (LoanStatus status : repository.findStatusByIdIn(chunk)) {
+            found.put(status.getId(), status.getIsbn());
+            if (!Boolean.TRUE.equals(status.getReturned())) {
+                open.add(status.getId());
+            }
+        }
+        Set<Long> returned = open.isEmpty() ? Collections.emptySet() : new HashSet<>(repository.lockOpenIdsIn(open));
+        if (!returned.isEmpty()) {
+            int updated = repository.markReturned(returned);
+            if (updated != returned.size()) {
+                //so acontece sem transacao (o lock do select ja foi solto): melhor falhar do que responder errado
+                throw new IllegalStateException("devolução concorrente: " + updated + " de " + returned.size() + " empréstimos atualizados");
+            }
+        }
+        for (Long id : chunk) {
+            String isbn = found.get(id);
+            byId.put(id, !found.containsKey(id)
+                    ? new LoanReturnOutcome(id, null, LoanReturnOutcome.Status.NOT_FOUND)
+                    : new LoanReturnOutcome(id, isbn, returned.contains(id)
+                            ? LoanReturnOutcome.Status.RETURNED
+                            : LoanReturnOutcome.Status.ALREADY_RETURNED));
+        }
+    }
+
+    @Override
+    public Slice<LoanHistory> findHistory(String customer, String isbn, Boolean returned, Long beforeId, int size) {
+        //size + 1 linhas: a sobra so indica se ha proxima pagina
+        List<LoanHistory> rows = repository.findHistory(customer, isbn, returned, beforeId, size + 1);
+        boolean more = rows.size() > size;
+        return new SliceImpl<>(more ? rows.subList(0, size) : rows, PageRequest.of(0, size), more);
+    }
+
+    private <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += returnChunkSize) {
+            chunks.add(items.subList(from, Math.min(items.size(), from + returnChunkSize)));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,28 @@
+package com.library.api.service.lock;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * Um lock por chave, so enquanto alguem o segura: a entrada sai do mapa no unlock, entao a
+ * memoria acompanha as chaves em uso e chaves diferentes nunca disputam o mesmo lock.
+ * Sem espera e sem reentrada: tryLock falha se a chave ja esta com alguem.
+ */
+public class KeyedLocks {
+
+    private final ConcurrentMap<Long, Thread> owners = new ConcurrentHashMap<>();
+
+    public boolean tryLock(long key) {
+        return owners.putIfAbsent(key, Thread.currentThread()) == null;
+    }
+
+    public void unlock(long key) {
+        if (!owners.remove(key, Thread.currentThread())) {
+            throw new IllegalMonitorStateException(" lock da chave " + key + " não pertence a esta thread");
+        }
+    }
+
+    public int size() {
+        return owners.size();
+    }
+}
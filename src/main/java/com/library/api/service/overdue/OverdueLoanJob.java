@@ -0,0 +1,265 @@
+package com.library.api.service.overdue;
+
+import com.library.api.model.JobCheckpoint;
+import com.library.api.model.repository.JobCheckpointRepository;
+import com.library.api.model.repository.LoanRepository;
+import com.library.api.model.repository.OverdueLoan;
+import com.library.api.service.event.LoansOverdueEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/*
+ * Varredura noturna de emprestimos atrasados (returned = false, overdue = false e loanDate antes do corte).
+ * Uma thread le a tabela em lotes pelo keyset (loan_date, id) do indice idx_loan_overdue e
+ * entrega cada lote a um pool limitado, que publica LoansOverdueEvent. Quando os listeners de um lote
+ * terminam, a thread de leitura marca os emprestimos do lote como atrasados (um update por lote) e so
+ * entao avanca o checkpoint, sempre ate o ultimo lote concluido sem lacunas: uma execucao interrompida
+ * retoma dali e cada emprestimo e marcado uma vez.
+ * Com varias instancias, so quem tem o lease do checkpoint executa; o lease e renovado a cada lote
+ * gravado e expira sozinho se a instancia cair.
+ */
+@Slf4j
+@Component
+public class OverdueLoanJob {
+
+    public static final String NAME = "overdue-loans";
+
+    private final LoanRepository loanRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final int loanDays;
+    private final Duration lease;
+    //identifica esta instancia no lease do checkpoint
+    private final String owner = UUID.randomUUID().toString();
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Timer runTimer;
+    private final AtomicLong rowsPerSecond = new AtomicLong();
+    private volatile LocalDateTime lastFinishedAt;
+
+    public OverdueLoanJob(LoanRepository loanRepository, JobCheckpointRepository checkpointRepository,
+                          ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                          int chunkSize, int threads, int loanDays) {
+        this(loanRepository, checkpointRepository, eventPublisher, meterRegistry, chunkSize, threads, loanDays,
+                Duration.ofMinutes(10));
+    }
+
+    @Autowired
+    public OverdueLoanJob(LoanRepository loanRepository, JobCheckpointRepository checkpointRepository,
+                          ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                          @Value("${library.overdue.chunk-size:1000}") int chunkSize,
+                          @Value("${library.overdue.threads:4}") int threads,
+                          @Value("${library.overdue.loan-days:30}") int loanDays,
+                          @Value("${library.overdue.lease:10m}") Duration lease) {
+        this.loanRepository = loanRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.loanDays = loanDays;
+        this.lease = lease;
+
+        //fila curta + CallerRuns: com o pool ocupado a leitura para, e a memoria fica em poucos lotes
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads), runnable -> {
+                    Thread thread = new Thread(runnable, "overdue-loans-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        this.runTimer = Timer.builder("loans.overdue.run")
+                .description("duracao da varredura de emprestimos atrasados")
+                .register(meterRegistry);
+        Gauge.builder("loans.overdue.rows.per.second", rowsPerSecond, AtomicLong::get)
+                .description("emprestimos por segundo na ultima varredura")
+                .register(meterRegistry);
+        Gauge.builder("loans.overdue.lag.seconds", this, OverdueLoanJob::lagSeconds)
+                .description("segundos desde a ultima varredura concluida")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${library.overdue.cron:0 0 2 * * *}")
+    public void scheduledRun() {
+        run(LocalDate.now());
+    }
+
+    //devolve quantos emprestimos atrasados foram processados; -1 se ja havia uma execucao em andamento
+    //nesta ou em outra instancia
+    public long run(LocalDate today) {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("varredura de atrasados ja em andamento, execucao ignorada");
+            return -1;
+        }
+        long start = System.nanoTime();
+        boolean finished = false;
+        try {
+            if (!acquire(today)) {
+                log.info("varredura de atrasados em andamento em outra instancia, execucao ignorada");
+                return -1;
+            }
+            JobCheckpoint checkpoint = checkpointRepository.findById(NAME).get();
+            if (checkpoint.isFinished()) {
+                restart(checkpoint, today);
+            }
+            long resumedAt = checkpoint.getProcessed();
+            if (checkpoint.getLastId() != null) {
+                log.info("retomando varredura de atrasados do emprestimo {} ({} ja processados)",
+                        checkpoint.getLastId(), resumedAt);
+            }
+
+            scan(checkpoint);
+
+            checkpoint.setFinished(true);
+            save(checkpoint, null);
+            finished = true;
+            lastFinishedAt = checkpoint.getUpdatedAt();
+
+            long elapsed = System.nanoTime() - start;
+            long processed = checkpoint.getProcessed() - resumedAt;
+            rowsPerSecond.set(elapsed == 0 ? 0 : processed * TimeUnit.SECONDS.toNanos(1) / elapsed);
+            log.info("varredura de atrasados concluida: {} emprestimos em {} ms", processed,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed));
+            return processed;
+        } finally {
+            if (!finished) {
+                //falha: o lease sai junto, a proxima execucao (aqui ou em outra instancia) retoma do checkpoint
+                checkpointRepository.release(NAME, owner);
+            }
+            runTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            running.set(false);
+        }
+    }
+
+    //cria o checkpoint na primeira execucao e toma o lease com um update condicional
+    private boolean acquire(LocalDate today) {
+        if (!checkpointRepository.existsById(NAME)) {
+            try {
+                checkpointRepository.saveAndFlush(newCheckpoint(today));
+            } catch (DataIntegrityViolationException ex) {
+                //outra instancia criou o checkpoint ao mesmo tempo; o lease decide quem executa
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return checkpointRepository.acquire(NAME, owner, now, now.plus(lease)) == 1;
+    }
+
+    private void scan(JobCheckpoint checkpoint) {
+        PageRequest page = PageRequest.of(0, chunkSize);
+        Deque<Chunk> pending = new ArrayDeque<>();
+        LocalDate cutoff = checkpoint.getCutoff();
+        try {
+            List<OverdueLoan> rows = checkpoint.getLastId() == null
+                    ? loanRepository.findOverdue(cutoff, page)
+                    : loanRepository.findOverdueAfter(cutoff, checkpoint.getLastLoanDate(), checkpoint.getLastId(), page);
+            while (!rows.isEmpty()) {
+                List<OverdueLoan> chunk = rows;
+                OverdueLoan last = chunk.get(chunk.size() - 1);
+                Future<?> future = executor.submit(() -> eventPublisher.publishEvent(new LoansOverdueEvent(cutoff, chunk)));
+                pending.addLast(new Chunk(future, chunk));
+                advance(checkpoint, pending, false);
+
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+                rows = loanRepository.findOverdueAfter(cutoff, last.getLoanDate(), last.getId(), page);
+            }
+            advance(checkpoint, pending, true);
+        } catch (ExecutionException ex) {
+            //o checkpoint fica no ultimo lote concluido; a proxima execucao retoma dali
+            pending.forEach(chunk -> chunk.future.cancel(false));
+            throw new IllegalStateException("falha ao processar lote de emprestimos atrasados", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("varredura de atrasados interrompida", ex);
+        }
+    }
+
+    //marca e grava o checkpoint ate o ultimo lote concluido em sequencia; wait espera todos os pendentes
+    private void advance(JobCheckpoint checkpoint, Deque<Chunk> pending, boolean wait)
+            throws ExecutionException, InterruptedException {
+        Chunk done = null;
+        while (!pending.isEmpty() && (wait || pending.peekFirst().future.isDone())) {
+            Chunk chunk = pending.removeFirst();
+            chunk.future.get();
+            loanRepository.markOverdue(chunk.loans.stream().map(OverdueLoan::getId).collect(Collectors.toList()));
+            checkpoint.setProcessed(checkpoint.getProcessed() + chunk.loans.size());
+            done = chunk;
+        }
+        if (done != null) {
+            OverdueLoan last = done.loans.get(done.loans.size() - 1);
+            checkpoint.setLastLoanDate(last.getLoanDate());
+            checkpoint.setLastId(last.getId());
+            save(checkpoint, LocalDateTime.now().plus(lease));
+        }
+    }
+
+    private JobCheckpoint newCheckpoint(LocalDate today) {
+        return JobCheckpoint.builder()
+                .name(NAME)
+                .cutoff(today.minusDays(loanDays))
+                .startedAt(LocalDateTime.now())
+                .build();
+    }
+
+    //nova execucao sobre o checkpoint concluido da anterior
+    private void restart(JobCheckpoint checkpoint, LocalDate today) {
+        checkpoint.setCutoff(today.minusDays(loanDays));
+        checkpoint.setLastLoanDate(null);
+        checkpoint.setLastId(null);
+        checkpoint.setProcessed(0);
+        checkpoint.setFinished(false);
+        checkpoint.setStartedAt(LocalDateTime.now());
+    }
+
+    //renova (ou libera, com null) o lease junto com o progresso; a versao recusa quem ja perdeu o lease
+    private void save(JobCheckpoint checkpoint, LocalDateTime lockedUntil) {
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpoint.setLockedUntil(lockedUntil);
+        checkpoint.setVersion(checkpointRepository.saveAndFlush(checkpoint).getVersion());
+    }
+
+    private double lagSeconds() {
+        LocalDateTime finishedAt = lastFinishedAt;
+        return finishedAt == null ? Double.NaN : Duration.between(finishedAt, LocalDateTime.now()).getSeconds();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static class Chunk {
+        private final Future<?> future;
+        private final List<OverdueLoan> loans;
+
+        Chunk(Future<?> future, List<OverdueLoan> loans) {
+            this.future = future;
+            this.loans = loans;
+        }
+    }
+}
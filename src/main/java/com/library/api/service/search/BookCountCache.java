@@ -0,0 +1,61 @@
+package com.library.api.service.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.library.api.model.Book;
+import com.library.api.service.event.BookChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+//total de buscas por filtro; qualquer escrita em Book invalida tudo
+@Component
+public class BookCountCache {
+
+    private final Cache<List<String>, Long> counts;
+    //evita guardar um count calculado antes de uma escrita que aconteceu durante o calculo
+    private final AtomicLong generation = new AtomicLong();
+
+    public BookCountCache(@Value("${library.search.count-cache.ttl:60s}") Duration ttl,
+                          @Value("${library.search.count-cache.max-size:10000}") long maxSize) {
+        this.counts = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    public Optional<Long> get(Book filter) {
+        return Optional.ofNullable(counts.getIfPresent(keyOf(filter)));
+    }
+
+    public void put(Book filter, long count, long generationAtStart) {
+        if (generation.get() == generationAtStart) {
+            counts.put(keyOf(filter), count);
+        }
+    }
+
+    @EventListener(BookChangedEvent.class)
+    public void invalidate() {
+        generation.incrementAndGet();
+        counts.invalidateAll();
+    }
+
+    //mesma normalizacao da chave de busca do BookController; filtro nulo e o livro vazio (sem filtro)
+    static List<String> keyOf(Book filter) {
+        if (filter == null) {
+            return Arrays.asList(null, null, null);
+        }
+        return Arrays.asList(BookSearchIndex.normalize(filter.getTitle()), BookSearchIndex.normalize(filter.getAuthor()),
+                BookSearchIndex.normalize(filter.getIsbn()));
+    }
+}
@@ -0,0 +1,298 @@
+package com.library.api.service.search;
+
+import com.library.api.model.Book;
+import com.library.api.model.repository.BookRepository;
+import com.library.api.service.event.BookChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Indice invertido de trigramas sobre title, author e isbn.
+ * Substitui o lower(x) like '%y%' do Example: os trigramas do termo escolhem os candidatos
+ * e cada candidato e conferido com contains() no texto normalizado guardado aqui.
+ */
+@Slf4j
+@Component
+public class BookSearchIndex {
+
+    static final int GRAM = 3;
+
+    private final BookRepository repository;
+    private final boolean enabled;
+    private final int warmupChunkSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, LongPostingList> postings = new HashMap<>();
+    private final Map<Long, IndexedBook> documents = new HashMap<>();
+
+    //ids alterados por eventos durante a carga inicial; a carga nao sobrescreve esses
+    private final Set<Long> touchedDuringWarmup = ConcurrentHashMap.newKeySet();
+    private volatile boolean warming;
+    private volatile boolean ready;
+
+    public BookSearchIndex(BookRepository repository,
+                           @Value("${library.search.mode:INDEX}") SearchMode mode,
+                           @Value("${library.search.index.warmup-chunk-size:10000}") int warmupChunkSize) {
+        this.repository = repository;
+        this.enabled = mode == SearchMode.INDEX;
+        this.warmupChunkSize = warmupChunkSize;
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmupAsync() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::warmup, "book-search-index-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void warmup() {
+        warming = true;
+        long start = System.currentTimeMillis();
+        long lastId = 0L;
+        int total = 0;
+        try {
+            List<Book> chunk;
+            do {
+                chunk = repository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, warmupChunkSize));
+                lock.writeLock().lock();
+                try {
+                    for (Book book : chunk) {
+                        if (!touchedDuringWarmup.contains(book.getId())) {
+                            put(book.getId(), IndexedBook.of(book));
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                if (!chunk.isEmpty()) {
+                    lastId = chunk.get(chunk.size() - 1).getId();
+                    total += chunk.size();
+                }
+            } while (chunk.size() == warmupChunkSize);
+
+            ready = true;
+            log.info("indice de busca carregado: {} livros em {} ms", total, System.currentTimeMillis() - start);
+        } catch (RuntimeException ex) {
+            log.error("falha ao carregar indice de busca, buscas usam o Example", ex);
+        } finally {
+            warming = false;
+            touchedDuringWarmup.clear();
+        }
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        Book book = event.getBook();
+        if (!enabled || book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (warming) {
+                touchedDuringWarmup.add(book.getId());
+            }
+            if (event.getType() == BookChangedEvent.Type.DELETED) {
+                remove(book.getId());
+            } else {
+                //o evento traz o livro como ficou gravado: campo nulo e campo limpo
+                put(book.getId(), IndexedBook.of(book));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids (ordem crescente) dos livros cujos campos informados contem o termo, ignorando caixa.
+     * Vazio quando nenhum campo do filtro tem ao menos {@value #GRAM} caracteres: nesse caso
+     * o indice nao ajuda e quem chama deve usar a busca no banco.
+     */
+    public Optional<long[]> search(Book filter) {
+        EnumMap<Field, String> terms = new EnumMap<>(Field.class);
+        addTerm(terms, Field.TITLE, filter.getTitle());
+        addTerm(terms, Field.AUTHOR, filter.getAuthor());
+        addTerm(terms, Field.ISBN, filter.getIsbn());
+
+        boolean indexable = false;
+        for (String term : terms.values()) {
+            indexable |= term.length() >= GRAM;
+        }
+        if (!indexable) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<LongPostingList> lists = new ArrayList<>();
+            for (Map.Entry<Field, String> term : terms.entrySet()) {
+                for (String gram : grams(term.getValue())) {
+                    LongPostingList list = postings.get(term.getKey().key(gram));
+                    if (list == null) {
+                        return Optional.of(new long[0]);
+                    }
+                    lists.add(list);
+                }
+            }
+            lists.sort(Comparator.comparingInt(LongPostingList::size));
+
+            LongPostingList smallest = lists.get(0);
+            long[] result = new long[smallest.size()];
+            int found = 0;
+            for (int i = 0; i < smallest.size(); i++) {
+                long id = smallest.get(i);
+                if (containsInAll(lists, id) && documents.get(id).matches(terms)) {
+                    result[found++] = id;
+                }
+            }
+            return Optional.of(Arrays.copyOf(result, found));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean containsInAll(List<LongPostingList> lists, long id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addTerm(Map<Field, String> terms, Field field, String value) {
+        String term = normalize(value);
+        if (term != null && !term.isEmpty()) {
+            terms.put(field, term);
+        }
+    }
+
+    private void put(long id, IndexedBook book) {
+        IndexedBook previous = documents.put(id, book);
+        for (Field field : Field.values()) {
+            String oldValue = previous == null ? null : previous.get(field);
+            String newValue = book.get(field);
+            if (Objects.equals(oldValue, newValue)) {
+                continue;
+            }
+            unlink(id, field, oldValue);
+            link(id, field, newValue);
+        }
+    }
+
+    private void remove(long id) {
+        IndexedBook previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (Field field : Field.values()) {
+            unlink(id, field, previous.get(field));
+        }
+    }
+
+    private void link(long id, Field field, String value) {
+        for (String gram : grams(value)) {
+            postings.computeIfAbsent(field.key(gram), k -> new LongPostingList()).add(id);
+        }
+    }
+
+    private void unlink(long id, Field field, String value) {
+        for (String gram : grams(value)) {
+            String key = field.key(gram);
+            LongPostingList list = postings.get(key);
+            if (list != null) {
+                list.remove(id);
+                if (list.size() == 0) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    static Set<String> grams(String value) {
+        if (value == null || value.length() < GRAM) {
+            return Collections.emptySet();
+        }
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    enum Field {
+        TITLE('t'), AUTHOR('a'), ISBN('i');
+
+        private final char prefix;
+
+        Field(char prefix) {
+            this.prefix = prefix;
+        }
+
+        String key(String gram) {
+            return prefix + gram;
+        }
+    }
+
+    static class IndexedBook {
+        private final String title;
+        private final String author;
+        private final String isbn;
+
+        IndexedBook(String title, String author, String isbn) {
+            this.title = title;
+            this.author = author;
+            this.isbn = isbn;
+        }
+
+        static IndexedBook of(Book book) {
+            return new IndexedBook(normalize(book.getTitle()), normalize(book.getAuthor()), normalize(book.getIsbn()));
+        }
+
+        String get(Field field) {
+            switch (field) {
+                case TITLE: return title;
+                case AUTHOR: return author;
+                default: return isbn;
+            }
+        }
+
+        boolean matches(Map<Field, String> terms) {
+            for (Map.Entry<Field, String> term : terms.entrySet()) {
+                String value = get(term.getKey());
+                if (value == null || !value.contains(term.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.library.api.service.search;
+
+import com.library.api.exceptions.BusinessException;
+
+import java.util.Locale;
+
+//como o total de uma busca paginada e calculado
+public enum CountStrategy {
+    //count(*) a cada pagina
+    EXACT,
+    //count(*) guardado por filtro com TTL, invalidado em save/update/delete
+    CACHED,
+    //sem count: le uma linha a mais e devolve "pelo menos N"
+    ESTIMATED;
+
+    public static CountStrategy of(String value) {
+        if (value == null || value.isEmpty()) {
+            return EXACT;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new BusinessException("estratégia de contagem inválida: " + value);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.library.api.service.search;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+//Page que informa como o totalElements foi obtido; com totalExact=false o total e um limite inferior
+public class CountedPage<T> extends PageImpl<T> {
+
+    private final CountStrategy countStrategy;
+    private final boolean totalExact;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, CountStrategy countStrategy, boolean totalExact) {
+        super(content, pageable, total);
+        this.countStrategy = countStrategy;
+        this.totalExact = totalExact;
+    }
+
+    public CountStrategy getCountStrategy() {
+        return countStrategy;
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+}
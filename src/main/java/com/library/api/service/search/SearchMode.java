@@ -0,0 +1,8 @@
+package com.library.api.service.search;
+
+public enum SearchMode {
+    //indice de trigramas em memoria
+    INDEX,
+    //Example com CONTAINING direto no banco (like '%x%')
+    EXAMPLE
+}
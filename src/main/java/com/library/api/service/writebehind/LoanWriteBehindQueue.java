@@ -0,0 +1,204 @@
+package com.library.api.service.writebehind;
+
+import com.library.api.exceptions.BusinessException;
+import com.library.api.model.Loan;
+import com.library.api.model.repository.LoanBatchWriter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/*
+ * Criacao de emprestimos em write-behind (library.loan.write-mode=WRITE_BEHIND). Emprestimos ja
+ * validados entram numa fila limitada; uma thread grava a fila em lotes de ate maxBatch itens,
+ * cada lote em uma transacao, assim que o lote enche ou flushInterval passa do primeiro item.
+ * Cada item tem um future que completa depois do commit do seu lote (ou com o erro do item),
+ * entao quem espera o future so responde com o emprestimo gravado.
+ */
+@Slf4j
+@Component
+public class LoanWriteBehindQueue {
+
+    private final LoanBatchWriter writer;
+    private final boolean enabled;
+    private final int maxBatch;
+    private final long flushIntervalNanos;
+    private final BlockingQueue<PendingLoan> queue;
+    //livros com emprestimo na fila: o banco ainda nao ve esses emprestimos
+    private final Set<Long> pendingBooks = ConcurrentHashMap.newKeySet();
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    private final Timer flushTimer;
+    private final Timer latencyTimer;
+    private final DistributionSummary batchSize;
+
+    public LoanWriteBehindQueue(LoanBatchWriter writer, MeterRegistry meterRegistry,
+                                @Value("${library.loan.write-mode:SYNC}") LoanWriteMode mode,
+                                @Value("${library.loan.write-behind.capacity:10000}") int capacity,
+                                @Value("${library.loan.write-behind.max-batch:500}") int maxBatch,
+                                @Value("${library.loan.write-behind.flush-interval:20ms}") Duration flushInterval) {
+        this.writer = writer;
+        this.enabled = mode == LoanWriteMode.WRITE_BEHIND;
+        this.maxBatch = maxBatch;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        Gauge.builder("loans.writebehind.queue.depth", queue, BlockingQueue::size)
+                .description("emprestimos na fila esperando gravacao")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("loans.writebehind.flush")
+                .description("duracao da gravacao de um lote (inserts em batch + commit)")
+                .register(meterRegistry);
+        this.latencyTimer = Timer.builder("loans.writebehind.latency")
+                .description("tempo entre entrar na fila e o commit do lote")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("loans.writebehind.batch.size")
+                .description("emprestimos por lote gravado")
+                .register(meterRegistry);
+
+        this.flusher = new Thread(this::run, "loan-write-behind");
+        this.flusher.setDaemon(true);
+        if (enabled) {
+            flusher.start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /*
+     * Quem chama ja validou o emprestimo contra o banco; um segundo emprestimo ativo do mesmo
+     * livro enquanto o primeiro ainda esta na fila e recusado aqui.
+     */
+    public CompletableFuture<Loan> submit(Loan loan) {
+        if (!enabled || closed) {
+            throw new IllegalStateException("fila de empréstimos desativada");
+        }
+        PendingLoan pending = new PendingLoan(loan);
+        if (pending.bookId != null && !pendingBooks.add(pending.bookId)) {
+            throw new BusinessException("book already borrowed");
+        }
+        if (!queue.offer(pending)) {
+            release(pending);
+            throw new BusinessException("loan queue full, try again");
+        }
+        return pending.future;
+    }
+
+    private void run() {
+        List<PendingLoan> batch = new ArrayList<>(maxBatch);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingLoan first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < maxBatch) {
+                    if (queue.drainTo(batch, maxBatch - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingLoan next = remaining <= 0 ? null : queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException ex) {
+                //encerramento: o que ja saiu da fila ainda e gravado
+                closed = true;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingLoan> batch) {
+        long start = System.nanoTime();
+        List<Loan> loans = new ArrayList<>(batch.size());
+        batch.forEach(pending -> loans.add(pending.loan));
+        List<RuntimeException> errors = new ArrayList<>(Collections.nCopies(batch.size(), null));
+        try {
+            writer.insertAll(loans);
+        } catch (RuntimeException batchError) {
+            //um item ruim (ex.: livro emprestado por outra instancia) nao derruba o lote: cada um em sua transacao
+            log.debug("lote de {} empréstimos falhou, gravando um a um", batch.size(), batchError);
+            for (int i = 0; i < batch.size(); i++) {
+                Loan loan = loans.get(i);
+                loan.setId(null);
+                try {
+                    writer.insertAll(Collections.singletonList(loan));
+                } catch (RuntimeException ex) {
+                    loan.setId(null);
+                    errors.set(i, ex);
+                }
+            }
+        }
+        //metricas antes dos futures: quem recebe a resposta ja ve o lote contado
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSize.record(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            complete(batch.get(i), errors.get(i));
+        }
+    }
+
+    private void complete(PendingLoan pending, RuntimeException error) {
+        //o livro sai da fila antes de responder: um novo pedido ja ve o emprestimo no banco (ou a falha)
+        release(pending);
+        latencyTimer.record(System.nanoTime() - pending.enqueuedAt, TimeUnit.NANOSECONDS);
+        if (error == null) {
+            pending.future.complete(pending.loan);
+        } else {
+            pending.future.completeExceptionally(error);
+        }
+    }
+
+    private void release(PendingLoan pending) {
+        if (pending.bookId != null) {
+            pendingBooks.remove(pending.bookId);
+        }
+    }
+
+    //para de aceitar emprestimos e grava o que ja esta na fila
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        closed = true;
+        if (enabled) {
+            flusher.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        //itens que chegaram junto com o encerramento nao ficam esperando para sempre
+        PendingLoan pending;
+        while ((pending = queue.poll()) != null) {
+            complete(pending, new IllegalStateException("fila de empréstimos encerrada"));
+        }
+    }
+
+    private static class PendingLoan {
+        private final Loan loan;
+        private final Long bookId;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Loan> future = new CompletableFuture<>();
+
+        PendingLoan(Loan loan) {
+            this.loan = loan;
+            this.bookId = loan.getActiveBookId();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.library.api.service.writebehind;
+
+public enum LoanWriteMode {
+    //um insert e um commit por requisicao
+    SYNC,
+    //fila em memoria gravada em lotes; a requisicao espera o commit do seu lote
+    WRITE_BEHIND
+}
@@ -0,0 +1,171 @@
+package com.library.api.api.admission;
+
+import com.library.api.api.dto.BookDTO;
+import com.library.api.api.resource.BookController;
+import com.library.api.exceptions.OverloadedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.DispatcherType;
+import java.io.InputStream;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class AdmissionControlInterceptorTest {
+
+    AdmissionControlInterceptor interceptor;
+    SimpleMeterRegistry meterRegistry;
+    HandlerMethod create;
+    HandlerMethod search;
+    HandlerMethod importBooks;
+    HandlerMethod export;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        ObjectProvider<MeterRegistry> provider = Mockito.mock(ObjectProvider.class);
+        Mockito.when(provider.getIfAvailable(Mockito.any())).thenReturn(meterRegistry);
+        //limite de 1 por grupo e alvo de 1 minuto: so o limite ocupado recusa
+        interceptor = new AdmissionControlInterceptor(provider, 1, 1, 2, 0.5, 0.8,
+                Duration.ofSeconds(3), Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofMinutes(1), 1);
+        BookController controller = Mockito.mock(BookController.class);
+        create = new HandlerMethod(controller, BookController.class.getMethod("create", BookDTO.class));
+        search = new HandlerMethod(controller, BookController.class.getMethod("findBook",
+                BookDTO.class, Pageable.class, String.class));
+        importBooks = new HandlerMethod(controller, BookController.class.getMethod("importBooks",
+                String.class, InputStream.class));
+        export = new HandlerMethod(controller, BookController.class.getMethod("export",
+                BookDTO.class, String.class, boolean.class));
+    }
+
+    @Test
+    @DisplayName("recusa acima do limite e busca enquanto escritas estão congestionadas")
+    public void rejectTest() {
+        //cenario
+        MockHttpServletRequest write = new MockHttpServletRequest("POST", "/api/books");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        //execucao
+        boolean admitted = interceptor.preHandle(write, response, create);
+        Throwable secondWrite = catchThrowable(() ->
+                interceptor.preHandle(new MockHttpServletRequest("POST", "/api/books"), response, create));
+        Throwable searchWhileBusy = catchThrowable(() ->
+                interceptor.preHandle(new MockHttpServletRequest("GET", "/api/books"), response, search));
+        interceptor.afterCompletion(write, response, create, null);
+        boolean searchAfter = interceptor.preHandle(new MockHttpServletRequest("GET", "/api/books"), response, search);
+
+        //verificacao
+        assertThat(admitted).isTrue();
+        assertThat(secondWrite).isInstanceOf(OverloadedException.class);
+        assertThat(((OverloadedException) secondWrite).getRetryAfter()).isEqualTo(Duration.ofSeconds(3));
+        assertThat(searchWhileBusy).isInstanceOf(OverloadedException.class);
+        assertThat(searchAfter).isTrue();
+        assertThat(meterRegistry.get("admission.rejected").tag("group", "write").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("admission.rejected").tag("group", "search").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("importacao tem limite fixo proprio e cede a vez para as escritas")
+    public void importGroupTest() {
+        //cenario
+        MockHttpServletRequest firstImport = new MockHttpServletRequest("POST", "/api/books/import");
+        MockHttpServletRequest write = new MockHttpServletRequest("POST", "/api/books");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        //execucao
+        boolean imported = interceptor.preHandle(firstImport, response, importBooks);
+        boolean writeDuringImport = interceptor.preHandle(write, response, create);
+        Throwable importWhileWriting = catchThrowable(() ->
+                interceptor.preHandle(new MockHttpServletRequest("POST", "/api/books/import"), response, importBooks));
+        interceptor.afterCompletion(write, response, create, null);
+        interceptor.afterCompletion(firstImport, response, importBooks, null);
+
+        //verificacao
+        assertThat(imported).isTrue();
+        assertThat(writeDuringImport).isTrue();
+        assertThat(importWhileWriting).isInstanceOf(OverloadedException.class);
+        assertThat(meterRegistry.get("admission.rejected").tag("group", "bulk").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("admission.limit").tag("group", "bulk").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("admission.limit").tag("group", "write").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("exportacao em streaming segura a vaga ate o fim do dispatch async")
+    public void asyncExportHoldsPermitTest() throws Exception {
+        //cenario
+        MockHttpServletRequest firstExport = new MockHttpServletRequest("GET", "/api/books/export");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        //execucao: o controller devolve o StreamingResponseBody e o streaming continua em outra thread
+        boolean admitted = interceptor.preHandle(firstExport, response, export);
+        interceptor.afterConcurrentHandlingStarted(firstExport, response, export);
+        Throwable secondExport = catchThrowable(() ->
+                interceptor.preHandle(new MockHttpServletRequest("GET", "/api/books/export"), response, export));
+        //fim do streaming: dispatch ASYNC do mesmo request
+        firstExport.setDispatcherType(DispatcherType.ASYNC);
+        boolean asyncDispatch = interceptor.preHandle(firstExport, response, export);
+        interceptor.afterCompletion(firstExport, response, export, null);
+        boolean afterStreaming = interceptor.preHandle(new MockHttpServletRequest("GET", "/api/books/export"), response, export);
+
+        //verificacao
+        assertThat(admitted).isTrue();
+        assertThat(secondExport).isInstanceOf(OverloadedException.class);
+        assertThat(asyncDispatch).isTrue();
+        assertThat(afterStreaming).isTrue();
+        assertThat(meterRegistry.get("admission.rejected").tag("group", "bulk").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("limite fixo nao cai com importacoes lentas")
+    public void fixedLimitTest() {
+        //cenario
+        AimdLimiter limiter = new AimdLimiter(Long.MAX_VALUE, 2, 2, 2, 0.5, 0.8);
+
+        //execucao
+        limiter.tryAcquire();
+        limiter.release(Duration.ofMinutes(10).toNanos());
+
+        //verificacao
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("limite cai com latência acima do alvo e sobe abaixo dele")
+    public void aimdTest() {
+        //cenario
+        AimdLimiter limiter = new AimdLimiter(Duration.ofMillis(100).toNanos(), 10, 2, 12, 0.5, 0.8);
+
+        //execucao
+        limiter.tryAcquire();
+        limiter.release(Duration.ofMillis(500).toNanos());
+        int afterSlow = limiter.getLimit();
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+        }
+        boolean congested = limiter.isCongested();
+        boolean full = !limiter.tryAcquire();
+        for (int i = 0; i < 5; i++) {
+            limiter.release(Duration.ofMillis(10).toNanos());
+        }
+
+        //verificacao
+        assertThat(afterSlow).isEqualTo(5);
+        assertThat(congested).isTrue();
+        assertThat(full).isTrue();
+        assertThat(limiter.isCongested()).isFalse();
+        assertThat(limiter.getLimit()).isGreaterThan(5);
+        assertThat(limiter.getInFlight()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,157 @@
+package com.library.api.api.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IdempotencyFilterTest {
+
+    IdempotencyFilter filter;
+    SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp(){
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new IdempotencyFilter(new InMemoryIdempotencyStore(100, Duration.ofMinutes(1)), new ObjectMapper(),
+                meterRegistry, Arrays.asList("/api/loans"), Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("repetição com a original em andamento espera e recebe a mesma resposta")
+    public void inFlightDuplicateTest() throws Exception {
+        //cenario
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain chain = (request, response) -> {
+            executions.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            ((HttpServletResponse) response).setStatus(201);
+            response.getOutputStream().write("1".getBytes(StandardCharsets.UTF_8));
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        //execucao
+        MockHttpServletResponse original = new MockHttpServletResponse();
+        MockHttpServletResponse duplicate = new MockHttpServletResponse();
+        try {
+            Future<?> first = executor.submit(() -> {
+                filter.doFilter(request("a"), original, chain);
+                return null;
+            });
+            started.await(5, TimeUnit.SECONDS);
+            Future<?> second = executor.submit(() -> {
+                filter.doFilter(request("a"), duplicate, chain);
+                return null;
+            });
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //verificacao
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(original.getStatus()).isEqualTo(201);
+        assertThat(duplicate.getStatus()).isEqualTo(201);
+        assertThat(duplicate.getContentAsString()).isEqualTo("1");
+        assertThat(duplicate.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+    }
+
+    @Test
+    @DisplayName("erro não fica guardado e a repetição executa de novo")
+    public void errorNotStoredTest() throws Exception {
+        //cenario
+        AtomicInteger executions = new AtomicInteger();
+        FilterChain chain = (request, response) -> {
+            int execution = executions.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(execution == 1 ? 400 : 201);
+        };
+
+        //execucao
+        MockHttpServletResponse failed = new MockHttpServletResponse();
+        MockHttpServletResponse retried = new MockHttpServletResponse();
+        filter.doFilter(request("a"), failed, chain);
+        filter.doFilter(request("a"), retried, chain);
+
+        //verificacao
+        assertThat(failed.getStatus()).isEqualTo(400);
+        assertThat(retried.getStatus()).isEqualTo(201);
+        assertThat(executions.get()).isEqualTo(2);
+        assertThat(meterRegistry.get("idempotency.requests").tag("result", "executed").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("copia do corpo aceita leitura nao bloqueante")
+    public void readListenerTest() throws Exception {
+        //cenario
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        List<String> calls = new ArrayList<>();
+        FilterChain chain = (request, response) -> {
+            ServletInputStream input = request.getInputStream();
+            input.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    calls.add("dataAvailable");
+                    while (input.isReady() && !input.isFinished()) {
+                        read.write(input.read());
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    calls.add("allDataRead");
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    calls.add("error");
+                }
+            });
+            ((HttpServletResponse) response).setStatus(201);
+        };
+
+        //execucao
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("a"), response, chain);
+
+        //verificacao
+        assertThat(response.getStatus()).isEqualTo(201);
+        assertThat(calls).containsExactly("dataAvailable", "allDataRead");
+        assertThat(read.toString("UTF-8")).isEqualTo("{\"isbn\":\"123\"}");
+    }
+
+    private MockHttpServletRequest request(String key) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/loans");
+        request.addHeader(IdempotencyFilter.KEY_HEADER, key);
+        request.setContentType("application/json");
+        request.setContent("{\"isbn\":\"123\"}".getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,60 @@
+package com.library.api.api.mapper;
+
+import com.library.api.api.dto.BookDTO;
+import com.library.api.api.dto.LoanDTO;
+import com.library.api.model.Book;
+import com.library.api.model.Loan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MapperTest {
+
+    BookMapper compiledBook = Mappers.getMapper(CompiledBookMapper.class);
+    LoanMapper compiledLoan = Mappers.getMapper(CompiledLoanMapper.class);
+
+    @Test
+    @DisplayName("mapeia livro para dto igual ao ModelMapper")
+    public void bookToDtoTest(){
+        Book book = Book.builder().id(1L).title("as aventuras").author("renato").isbn("123").build();
+
+        BookDTO dto = compiledBook.toDto(book);
+
+        assertThat(dto).isEqualTo(BookDTO.builder().id(1L).title("as aventuras").author("renato").isbn("123").build());
+        assertThat(dto).isEqualTo(new ModelMapperBookMapper(new ModelMapper()).toDto(book));
+    }
+
+    @Test
+    @DisplayName("dto sem id vira livro novo")
+    public void dtoToBookTest(){
+        BookDTO dto = BookDTO.builder().title("as aventuras").author("renato").isbn("123").build();
+
+        Book book = compiledBook.toEntity(dto);
+
+        assertThat(book.getId()).isNull();
+        assertThat(book.getTitle()).isEqualTo("as aventuras");
+        assertThat(book.getAuthor()).isEqualTo("renato");
+        assertThat(book.getIsbn()).isEqualTo("123");
+        assertThat(compiledBook.toEntity(BookDTO.builder().id(5L).build()).getId()).isEqualTo(5L);
+    }
+
+    @Test
+    @DisplayName("mapeia emprestimo com o isbn do livro")
+    public void loanMappingTest(){
+        Loan loan = Loan.builder().id(1L).customer("renato").loanDate(LocalDate.now())
+                .book(Book.builder().id(2L).isbn("123").build()).build();
+
+        LoanDTO dto = compiledLoan.toDto(loan);
+        Loan entity = compiledLoan.toEntity(LoanDTO.builder().isbn("123").customer("renato").build());
+
+        assertThat(dto).isEqualTo(LoanDTO.builder().id(1L).isbn("123").customer("renato").build());
+        assertThat(dto).isEqualTo(new ModelMapperLoanMapper(new ModelMapper()).toDto(loan));
+        assertThat(entity.getCustomer()).isEqualTo("renato");
+        assertThat(entity.getBook()).isNull();
+    }
+}
@@ -3,8 +3,17 @@ package com.library.api.api.resource;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.library.api.api.dto.BookDTO;
 import com.library.api.exceptions.BusinessException;
+import com.library.api.exceptions.OverloadedException;
 import com.library.api.model.Book;
+import com.library.api.model.repository.BookView;
+import com.library.api.service.BookBatch;
+import com.library.api.service.BookCursor;
+import com.library.api.service.BookImportReport;
+import com.library.api.service.BookImportRow;
 import com.library.api.service.BookService;
+import com.library.api.service.search.CountStrategy;
+import com.library.api.service.search.CountedPage;
+import org.assertj.core.api.Assertions;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -17,24 +26,39 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -144,6 +168,116 @@ public class BookControllerTest {
                 .andExpect(jsonPath("isbn").value(book.getIsbn()));
     }
 
+    @Test
+    @DisplayName("devolve a versao do livro como ETag")
+    public void getBookETagTest() throws Exception{
+        //cenario
+        Book book = Book.builder().id(1L).author("renato").title("as aventuras").isbn("123").version(3L).build();
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.of(book));
+
+        //execucao
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")).accept(MediaType.APPLICATION_JSON))
+                //verificacao
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""));
+    }
+
+    @Test
+    @DisplayName("responde 304 a If-None-Match so consultando a versao")
+    public void getBookNotModifiedTest() throws Exception{
+        //cenario
+        BDDMockito.given(service.getVersion(1L)).willReturn(Optional.of(3L));
+
+        //execucao
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1"))
+                        .header("If-None-Match", "\"3\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                //verificacao
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(content().string(""));
+        Mockito.verify(service, Mockito.never()).getById(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("atualiza com If-Match sem ler o livro antes")
+    public void conditionalUpdateTest() throws Exception{
+        //cenario
+        Book updated = Book.builder().id(1L).author("novo autor").title("novo titulo").isbn("123").version(4L).build();
+        BDDMockito.given(service.update(1L, "novo titulo", "novo autor", Arrays.asList(3L)))
+                .willReturn(Optional.of(updated));
+
+        //execucao
+        mvc
+                .perform(MockMvcRequestBuilders.put(BOOK_API.concat("/1?title=novo titulo&author=novo autor"))
+                        .header("If-Match", "\"3\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                //verificacao
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(jsonPath("title").value("novo titulo"));
+        Mockito.verify(service, Mockito.never()).getById(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("responde 412 quando o If-Match nao confere")
+    public void conditionalUpdateStaleTest() throws Exception{
+        //cenario
+        BDDMockito.given(service.update(Mockito.anyLong(), Mockito.any(), Mockito.any(), Mockito.any()))
+                .willThrow(new OptimisticLockingFailureException("livro alterado por outra requisição"));
+
+        //execucao
+        mvc
+                .perform(MockMvcRequestBuilders.put(BOOK_API.concat("/1?title=novo titulo"))
+                        .header("If-Match", "\"2\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                //verificacao
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("errors[0]").value("livro alterado por outra requisição"));
+    }
+
+    @Test
+    @DisplayName("exclui com If-Match sem ler o livro antes")
+    public void conditionalDeleteTest() throws Exception{
+        //cenario
+        BDDMockito.given(service.delete(1L, Arrays.asList(3L, 4L))).willReturn(true);
+        BDDMockito.given(service.delete(2L, Arrays.asList(3L))).willReturn(false);
+
+        //execucao e verificacao
+        mvc
+                .perform(MockMvcRequestBuilders.delete(BOOK_API.concat("/1")).header("If-Match", "\"3\", W/\"5\", \"4\""))
+                .andExpect(status().isNoContent());
+        mvc
+                .perform(MockMvcRequestBuilders.delete(BOOK_API.concat("/2")).header("If-Match", "\"3\""))
+                .andExpect(status().isNotFound());
+        Mockito.verify(service, Mockito.never()).getById(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("obtem varios livros por ids e isbns numa requisicao")
+    public void getBatchTest() throws Exception{
+        //cenario
+        BookBatch batch = new BookBatch(
+                Arrays.asList(Book.builder().id(2L).title("b").isbn("456").build(),
+                        Book.builder().id(1L).title("a").isbn("123").build()),
+                Arrays.asList(9L), Arrays.asList("000"));
+        BDDMockito.given(service.getAll(Arrays.asList(2L, 9L), Arrays.asList("123", "000"))).willReturn(batch);
+
+        //execucao
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/batch?ids=2,9&isbns=123,000"))
+                        .accept(MediaType.APPLICATION_JSON))
+                //verificacao
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(2)))
+                .andExpect(jsonPath("content[0].id").value(2))
+                .andExpect(jsonPath("content[1].isbn").value("123"))
+                .andExpect(jsonPath("missingIds[0]").value(9))
+                .andExpect(jsonPath("missingIsbns[0]").value("000"));
+    }
+
     @Test
     @DisplayName("lanca erro ao não encontrar o livro com id informado")
     public void bookNotFoundTest() throws Exception{
@@ -163,8 +297,7 @@ public class BookControllerTest {
     @DisplayName("exclui um livro")
     public void deleteBookTest() throws Exception{
 
-        BDDMockito.given(service.getById(Mockito.anyLong()))
-                .willReturn(Optional.of(Book.builder().id(1L).build()));
+        BDDMockito.given(service.delete(1L, null)).willReturn(true);
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .delete(BOOK_API.concat("/"+1));
@@ -172,14 +305,15 @@ public class BookControllerTest {
         mvc
                 .perform(request)
                 .andExpect(status().isNoContent());
+        Mockito.verify(service, Mockito.never()).getById(Mockito.anyLong());
     }
 
     @Test
     @DisplayName("retorna que o livro nao foi encontrado pra delecao")
     public void deleteNotFoundBookTest() throws Exception{
 
-        BDDMockito.given(service.getById(Mockito.anyLong()))
-                .willReturn(Optional.empty());
+        BDDMockito.given(service.delete(Mockito.anyLong(), Mockito.isNull()))
+                .willReturn(false);
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .delete(BOOK_API.concat("/"+1));
@@ -208,9 +342,8 @@ public class BookControllerTest {
                 .isbn("567")
                 .build();
 
-        BDDMockito.given(service.getById(id))
+        BDDMockito.given(service.update(Mockito.eq(id), Mockito.any(), Mockito.any(), Mockito.isNull()))
                 .willReturn(Optional.of(bookUpdate));
-        BDDMockito.given(service.update(bookUpdate)).willReturn(bookUpdate);
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .put(BOOK_API.concat("/"+1))
@@ -224,6 +357,7 @@ public class BookControllerTest {
                 .andExpect(jsonPath("title").value(bookUpdate.getTitle()))
                 .andExpect(jsonPath("author").value(bookUpdate.getAuthor()))
                 .andExpect(jsonPath("isbn").value(bookUpdate.getIsbn()));
+        Mockito.verify(service, Mockito.never()).getById(Mockito.anyLong());
     }
 
     @Test
@@ -238,7 +372,7 @@ public class BookControllerTest {
 
         String json = new ObjectMapper().writeValueAsString(book);
 
-        BDDMockito.given(service.getById(Mockito.anyLong()))
+        BDDMockito.given(service.update(Mockito.anyLong(), Mockito.any(), Mockito.any(), Mockito.isNull()))
                 .willReturn(Optional.empty());
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -265,8 +399,8 @@ public class BookControllerTest {
                 .title("as aventuras")
                 .isbn("123").build();
 
-        BDDMockito.given( service.find(Mockito.any(Book.class), Mockito.any(Pageable.class)) )
-                .willReturn( new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0,100),1));
+        BDDMockito.given( service.findViews(Mockito.any(Book.class), Mockito.any(Pageable.class), Mockito.eq(CountStrategy.EXACT)) )
+                .willReturn( new CountedPage<BookView>(Arrays.asList(viewOf(book)), PageRequest.of(0,100),1, CountStrategy.EXACT, true));
 
         String queryString = String.format("?title=%s&author=%s&page=0&size=100",
                              book.getTitle(),
@@ -280,9 +414,215 @@ public class BookControllerTest {
                 .perform(request)
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].isbn").value("123"))
                 .andExpect(jsonPath("totalElements").value(1))
                 .andExpect(jsonPath("pageable.pageSize").value(100))
-                .andExpect(jsonPath("pageable.pageNumber").value(0));
+                .andExpect(jsonPath("pageable.pageNumber").value(0))
+                .andExpect(jsonPath("countStrategy").value("EXACT"));
+    }
+
+    @Test
+    @DisplayName("responde 503 com Retry-After quando a requisição é recusada por sobrecarga")
+    public void overloadedTest() throws Exception{
+        BDDMockito.given( service.findViews(Mockito.any(Book.class), Mockito.any(Pageable.class), Mockito.any(CountStrategy.class)) )
+                .willThrow(new OverloadedException("servidor sobrecarregado, tente novamente", Duration.ofSeconds(2)));
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=as")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("errors[0]").value("servidor sobrecarregado, tente novamente"));
+    }
+
+    @Test
+    @DisplayName("filtra livros com total estimado")
+    public void findBooksEstimatedCountTest() throws Exception{
+
+        Book book = Book.builder()
+                .id(1L)
+                .author("renato")
+                .title("as aventuras")
+                .isbn("123").build();
+
+        BDDMockito.given( service.findViews(Mockito.any(Book.class), Mockito.any(Pageable.class), Mockito.eq(CountStrategy.ESTIMATED)) )
+                .willReturn( new CountedPage<BookView>(Arrays.asList(viewOf(book)), PageRequest.of(0,1),2, CountStrategy.ESTIMATED, false));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?title=aventuras&page=0&size=1&count=estimated"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("totalElements").value(2))
+                .andExpect(jsonPath("last").value(false))
+                .andExpect(jsonPath("countStrategy").value("ESTIMATED"))
+                .andExpect(jsonPath("totalExact").value(false));
     }
 
+    @Test
+    @DisplayName("pagina livros por cursor")
+    public void findBooksAfterTest() throws Exception{
+
+        Book book = Book.builder()
+                .id(7L)
+                .author("renato")
+                .title("as aventuras")
+                .isbn("123").build();
+
+        BDDMockito.given( service.findAfter(Mockito.any(Book.class), Mockito.isNull(), Mockito.eq(Sort.Order.asc("title")), Mockito.eq(1)) )
+                .willReturn( new SliceImpl<Book>(Arrays.asList(book), PageRequest.of(0,1), true));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/cursor?title=aventuras&size=1&sort=title,asc"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        String next = BookCursor.after(book, Sort.Order.asc("title")).encode();
+
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("hasNext").value(true))
+                .andExpect(jsonPath("next").value(next))
+                .andExpect(jsonPath("totalElements").doesNotExist());
+
+        BDDMockito.given( service.findAfter(Mockito.any(Book.class), Mockito.any(BookCursor.class), Mockito.eq(Sort.Order.asc("title")), Mockito.eq(1)) )
+                .willReturn( new SliceImpl<Book>(Arrays.asList(), PageRequest.of(0,1), false));
+
+        mvc
+                .perform(MockMvcRequestBuilders
+                        .get(BOOK_API.concat("/cursor?title=aventuras&size=1&after=" + next))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(0)))
+                .andExpect(jsonPath("hasNext").value(false))
+                .andExpect(jsonPath("next").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("lanca erro com cursor invalido")
+    public void findBooksAfterInvalidCursorTest() throws Exception{
+
+        mvc
+                .perform(MockMvcRequestBuilders
+                        .get(BOOK_API.concat("/cursor?after=xpto"))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("cursor inválido"));
+    }
+
+    @Test
+    @DisplayName("importa livros em ndjson")
+    public void importBooksTest() throws Exception{
+
+        BDDMockito.given(service.importBooks(Mockito.any())).willAnswer(invocation -> {
+            Iterator<BookImportRow> rows = invocation.getArgument(0);
+            BookImportReport report = new BookImportReport(10);
+            while (rows.hasNext()) {
+                BookImportRow row = rows.next();
+                report.received();
+                if (row.isValid()) {
+                    report.imported(1);
+                } else {
+                    report.reject(row.getLine(), row.getIsbn(), row.getError());
+                }
+            }
+            return report;
+        });
+
+        String body = "{\"title\":\"as aventuras\",\"author\":\"renato\",\"isbn\":\"123\"}\n"
+                + "{\"title\":\"sem isbn\",\"author\":\"renato\"}\n";
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/import"))
+                .contentType("application/x-ndjson")
+                .accept(MediaType.APPLICATION_JSON)
+                .content(body);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("received").value(2))
+                .andExpect(jsonPath("imported").value(1))
+                .andExpect(jsonPath("rejected").value(1))
+                .andExpect(jsonPath("errors[0].line").value(2))
+                .andExpect(jsonPath("maxErrors").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("exporta livros em ndjson")
+    public void exportBooksNdjsonTest() throws Exception{
+
+        givenExportedBooks();
+
+        MvcResult result = mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export?author=renato")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc
+                .perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"books.ndjson\""))
+                .andExpect(content().string(
+                        "{\"id\":1,\"title\":\"as aventuras\",\"author\":\"renato\",\"isbn\":\"123\"}\n"
+                        + "{\"id\":2,\"title\":\"outro, \\\"livro\\\"\",\"author\":\"renato\",\"isbn\":\"456\"}\n"));
+
+        Mockito.verify(service).export(Mockito.argThat(filter -> "renato".equals(filter.getAuthor())), Mockito.any());
+    }
+
+    @Test
+    @DisplayName("exporta livros em csv compactado")
+    public void exportBooksCsvGzipTest() throws Exception{
+
+        givenExportedBooks();
+
+        MvcResult result = mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export?format=csv&gzip=true")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mvc
+                .perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            byte[] buffer = new byte[1024];
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                csv.write(buffer, 0, read);
+            }
+        }
+        Assertions.assertThat(new String(csv.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+                "id,title,author,isbn\r\n"
+                + "1,as aventuras,renato,123\r\n"
+                + "2,\"outro, \"\"livro\"\"\",renato,456\r\n");
+    }
+
+    @Test
+    @DisplayName("deve retornar erro ao exportar em formato nao suportado")
+    public void exportBooksInvalidFormatTest() throws Exception{
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export?format=xml")))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("formato de exportação não suportado: xml"));
+    }
+
+    private void givenExportedBooks() {
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(1);
+            consumer.accept(Book.builder().id(1L).title("as aventuras").author("renato").isbn("123").build());
+            consumer.accept(Book.builder().id(2L).title("outro, \"livro\"").author("renato").isbn("456").build());
+            return null;
+        }).given(service).export(Mockito.any(), Mockito.any());
+    }
+    private static BookView viewOf(Book book) {
+        return new BookView(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+    }
 }
@@ -0,0 +1,83 @@
+package com.library.api.api.resource;
+
+import com.library.api.model.Book;
+import com.library.api.model.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//o arquivo da exportacao volta pela importacao (banco H2 real, ids da exportacao ignorados)
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class BookExportImportTest {
+
+    private String BOOK_API = "/api/books";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository repository;
+
+    @BeforeEach
+    public void setUp(){
+        repository.save(Book.builder().isbn("001").title("as aventuras").author("renato").build());
+        repository.save(Book.builder().isbn("002").title("outro, \"livro\"").author("maria").build());
+        repository.save(Book.builder().isbn("003").title("primeira linha\nsegunda linha").author("ana").build());
+    }
+
+    @AfterEach
+    public void tearDown(){
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("importa o ndjson exportado")
+    public void ndjsonRoundTripTest() throws Exception{
+        roundTrip("ndjson", BookImportReader.NDJSON);
+    }
+
+    @Test
+    @DisplayName("importa o csv exportado")
+    public void csvRoundTripTest() throws Exception{
+        roundTrip("csv", BookImportReader.CSV);
+    }
+
+    private void roundTrip(String format, String contentType) throws Exception {
+        //cenario
+        MvcResult started = mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export?format=" + format)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] exported = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        repository.deleteAll();
+
+        //execucao
+        mvc.perform(MockMvcRequestBuilders.post(BOOK_API.concat("/import"))
+                        .contentType(contentType)
+                        .content(exported))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("imported").value(3))
+                .andExpect(jsonPath("rejected").value(0));
+
+        //verificacao
+        assertThat(repository.findAll()).extracting(Book::getIsbn).containsExactlyInAnyOrder("001", "002", "003");
+        assertThat(repository.findAll()).extracting(Book::getTitle).contains("outro, \"livro\"", "primeira linha\nsegunda linha");
+    }
+}
@@ -0,0 +1,120 @@
+package com.library.api.api.resource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.api.api.mapper.CompiledBookMapper;
+import com.library.api.exceptions.BusinessException;
+import com.library.api.service.BookImportRow;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class BookImportReaderTest {
+
+    Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    @DisplayName("le ndjson validando cada linha")
+    public void readNdjsonTest(){
+        String body = "{\"title\":\"as aventuras\",\"author\":\"renato\",\"isbn\":\"123\"}\n"
+                + "\n"
+                + "{\"title\":\"sem autor\",\"isbn\":\"456\"}\n"
+                + "{nao e json\n";
+
+        List<BookImportRow> rows = readAll(body, BookImportReader.Format.NDJSON);
+
+        assertThat(rows).hasSize(3);
+        assertThat(rows.get(0).isValid()).isTrue();
+        assertThat(rows.get(0).getBook().getIsbn()).isEqualTo("123");
+        assertThat(rows.get(0).getBook().getId()).isNull();
+        assertThat(rows.get(1).getLine()).isEqualTo(3);
+        assertThat(rows.get(1).getIsbn()).isEqualTo("456");
+        assertThat(rows.get(1).getError()).startsWith("author ");
+        assertThat(rows.get(2).getLine()).isEqualTo(4);
+        assertThat(rows.get(2).getError()).isEqualTo("linha inválida");
+    }
+
+    @Test
+    @DisplayName("le csv pelo cabecalho, com aspas")
+    public void readCsvTest(){
+        String body = "isbn,title,author\n"
+                + "123,\"aventuras, volume \"\"1\"\"\",renato\n"
+                + "456,,maria\n";
+
+        List<BookImportRow> rows = readAll(body, BookImportReader.Format.CSV);
+
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0).getBook().getTitle()).isEqualTo("aventuras, volume \"1\"");
+        assertThat(rows.get(0).getBook().getAuthor()).isEqualTo("renato");
+        assertThat(rows.get(0).getLine()).isEqualTo(2);
+        assertThat(rows.get(1).isValid()).isFalse();
+        assertThat(rows.get(1).getError()).startsWith("title ");
+    }
+
+    @Test
+    @DisplayName("le csv com quebra de linha dentro das aspas")
+    public void readMultilineCsvTest(){
+        String body = "isbn,title,author\n"
+                + "123,\"primeira linha\r\n\r\nterceira, \"\"linha\"\"\",renato\n"
+                + "456,o livro,maria\n"
+                + "789,\"sem fechamento,ana\n";
+
+        List<BookImportRow> rows = readAll(body, BookImportReader.Format.CSV);
+
+        assertThat(rows).hasSize(3);
+        assertThat(rows.get(0).getBook().getTitle()).isEqualTo("primeira linha\n\nterceira, \"linha\"");
+        assertThat(rows.get(0).getBook().getAuthor()).isEqualTo("renato");
+        assertThat(rows.get(0).getLine()).isEqualTo(2);
+        assertThat(rows.get(1).getBook().getIsbn()).isEqualTo("456");
+        assertThat(rows.get(1).getLine()).isEqualTo(5);
+        assertThat(rows.get(2).getLine()).isEqualTo(6);
+        assertThat(rows.get(2).getError()).isEqualTo("linha inválida");
+    }
+
+    @Test
+    @DisplayName("ignora o id das linhas exportadas")
+    public void ignoreExportedIdTest(){
+        List<BookImportRow> ndjson = readAll("{\"id\":5,\"title\":\"as aventuras\",\"author\":\"renato\",\"isbn\":\"123\"}\n",
+                BookImportReader.Format.NDJSON);
+        List<BookImportRow> csv = readAll("id,title,author,isbn\n7,as aventuras,renato,123\n", BookImportReader.Format.CSV);
+
+        assertThat(ndjson.get(0).isValid()).isTrue();
+        assertThat(ndjson.get(0).getBook().getId()).isNull();
+        assertThat(csv.get(0).isValid()).isTrue();
+        assertThat(csv.get(0).getBook().getId()).isNull();
+    }
+
+    @Test
+    @DisplayName("recusa csv sem as colunas do livro")
+    public void invalidCsvHeaderTest(){
+        Throwable exception = catchThrowable(() -> readAll("isbn,nome\n", BookImportReader.Format.CSV));
+
+        assertThat(exception).isInstanceOf(BusinessException.class);
+    }
+
+    @Test
+    @DisplayName("identifica o formato pelo content type")
+    public void formatOfTest(){
+        assertThat(BookImportReader.formatOf("text/csv;charset=UTF-8")).isEqualTo(BookImportReader.Format.CSV);
+        assertThat(BookImportReader.formatOf("application/x-ndjson")).isEqualTo(BookImportReader.Format.NDJSON);
+        assertThat(catchThrowable(() -> BookImportReader.formatOf("application/xml"))).isInstanceOf(BusinessException.class);
+    }
+
+    private List<BookImportRow> readAll(String body, BookImportReader.Format format){
+        BookImportReader reader = new BookImportReader(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), format,
+                new ObjectMapper(), validator, Mappers.getMapper(CompiledBookMapper.class));
+        List<BookImportRow> rows = new ArrayList<>();
+        reader.forEachRemaining(rows::add);
+        return rows;
+    }
+}
@@ -2,10 +2,13 @@ package com.library.api.api.resource;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.library.api.api.dto.LoanDTO;
+import com.library.api.api.dto.LoanReturnDTO;
 import com.library.api.exceptions.BusinessException;
 import com.library.api.model.Book;
 import com.library.api.model.Loan;
+import com.library.api.model.repository.LoanHistory;
 import com.library.api.service.BookService;
+import com.library.api.service.LoanReturnOutcome;
 import com.library.api.service.LoanService;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
@@ -20,6 +23,8 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
@@ -30,6 +35,7 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Optional;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -80,6 +86,40 @@ public class LoanControllerTest {
                 .andExpect(content().string("1"));
     }
 
+    @Test
+    @DisplayName("repete a resposta do empréstimo para a mesma Idempotency-Key")
+    public void idempotentCreateLoanTest() throws Exception{
+        LoanDTO dto = LoanDTO.builder().isbn("123").customer("renato").build();
+        BDDMockito.given(bookService.getBookByIsbn("123"))
+                .willReturn(Optional.of(Book.builder().id(1L).isbn("123").build()));
+        BDDMockito.given(loanService.save(Mockito.any(Loan.class)))
+                .willReturn(Loan.builder().id(7L).customer("renato").build());
+
+        String json = new ObjectMapper().writeValueAsString(dto);
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(LOAN_API)
+                .header("Idempotency-Key", "emprestimo-7")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        mvc.perform(request)
+                .andExpect(status().isCreated())
+                .andExpect(content().string("7"));
+        mvc.perform(request)
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotency-Replayed", "true"))
+                .andExpect(content().string("7"));
+        mvc.perform(MockMvcRequestBuilders.post(LOAN_API)
+                .header("Idempotency-Key", "emprestimo-7")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(LoanDTO.builder().isbn("456").customer("renato").build())))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("errors[0]").value("Idempotency-Key já usada com outra requisição"));
+
+        Mockito.verify(loanService, Mockito.times(1)).save(Mockito.any(Loan.class));
+    }
+
     @Test
     @DisplayName("lança erro ao criar loan sem isnb válida")
     public void invalidIsbnCreateLoanTest() throws Exception{
@@ -131,4 +171,57 @@ public class LoanControllerTest {
     }
 
 
+    @Test
+    @DisplayName("devolve empréstimos em lote")
+    public void returnLoansTest() throws Exception{
+
+        LoanReturnDTO dto = LoanReturnDTO.builder().ids(Arrays.asList(1L, 2L)).isbns(Arrays.asList("123")).build();
+        String json = new ObjectMapper().writeValueAsString(dto);
+
+        BDDMockito.given(loanService.returnLoans(dto.getIds(), dto.getIsbns())).willReturn(Arrays.asList(
+                new LoanReturnOutcome(1L, "456", LoanReturnOutcome.Status.RETURNED),
+                new LoanReturnOutcome(2L, null, LoanReturnOutcome.Status.NOT_FOUND),
+                new LoanReturnOutcome(3L, "123", LoanReturnOutcome.Status.RETURNED)));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .patch(LOAN_API.concat("/returns"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(3)))
+                .andExpect(jsonPath("[0].status").value("RETURNED"))
+                .andExpect(jsonPath("[1].status").value("NOT_FOUND"))
+                .andExpect(jsonPath("[1].isbn").doesNotExist())
+                .andExpect(jsonPath("[2].id").value(3));
+    }
+
+    @Test
+    @DisplayName("lista o historico de empréstimos do cliente")
+    public void findLoansTest() throws Exception{
+
+        LocalDate today = LocalDate.now();
+        BDDMockito.given(loanService.findHistory("renato", null, false, 10L, 2))
+                .willReturn(new SliceImpl<>(Arrays.asList(
+                        new LoanHistory(9L, "renato", today, false, 1L, "as aventuras", "123"),
+                        new LoanHistory(7L, "renato", today, false, 2L, "o livro", "456")),
+                        PageRequest.of(0, 2), true));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(LOAN_API.concat("?customer=renato&returned=false&after=10&size=2"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(2)))
+                .andExpect(jsonPath("content[0].title").value("as aventuras"))
+                .andExpect(jsonPath("content[1].isbn").value("456"))
+                .andExpect(jsonPath("hasNext").value(true))
+                .andExpect(jsonPath("next").value("7"));
+    }
+
 }
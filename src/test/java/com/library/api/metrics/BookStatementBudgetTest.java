@@ -0,0 +1,121 @@
+package com.library.api.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.api.api.dto.BookDTO;
+import com.library.api.model.Book;
+import com.library.api.model.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//quantos statements cada endpoint de livros executa de ponta a ponta (banco H2 real)
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class BookStatementBudgetTest {
+
+    private String BOOK_API = "/api/books";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository repository;
+
+    Book book;
+
+    @BeforeEach
+    public void setUp(){
+        book = repository.save(Book.builder().isbn("001").title("as aventuras").author("renato").build());
+    }
+
+    @AfterEach
+    public void tearDown(){
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("criar livro: um insert (o id vem do pool da sequence)")
+    @MaxStatements(1)
+    public void createTest() throws Exception{
+        String json = new ObjectMapper().writeValueAsString(
+                BookDTO.builder().isbn("002").title("o livro").author("maria").build());
+
+        mvc.perform(MockMvcRequestBuilders.post(BOOK_API).contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(SqlStatementBudgetFilter.STATEMENTS_HEADER, "1"));
+    }
+
+    @Test
+    @DisplayName("detalhar livro: no maximo um select")
+    @MaxStatements(1)
+    public void getTest() throws Exception{
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/" + book.getId())))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("detalhar livro com If-None-Match: so a versao, resposta 304")
+    @MaxStatements(1)
+    public void getNotModifiedTest() throws Exception{
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/" + book.getId()))
+                        .header("If-None-Match", "\"" + book.getVersion() + "\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @DisplayName("excluir livro com If-Match: um delete condicional")
+    @MaxStatements(1)
+    public void conditionalDeleteTest() throws Exception{
+        mvc.perform(MockMvcRequestBuilders.delete(BOOK_API.concat("/" + book.getId()))
+                        .header("If-Match", "\"" + book.getVersion() + "\""))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    @DisplayName("consulta em lote: um select por ids e um por isbns")
+    @MaxStatements(2)
+    public void batchTest() throws Exception{
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/batch"))
+                        .param("ids", book.getId() + ",-1")
+                        .param("isbns", "001,999"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("atualizar livro: update direto e releitura para a resposta")
+    @MaxStatements(2)
+    public void updateTest() throws Exception{
+        mvc.perform(MockMvcRequestBuilders.put(BOOK_API.concat("/" + book.getId()))
+                        .param("title", "novo titulo").param("author", "renato"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("excluir livro: um delete direto")
+    @MaxStatements(1)
+    public void deleteTest() throws Exception{
+        mvc.perform(MockMvcRequestBuilders.delete(BOOK_API.concat("/" + book.getId())))
+                .andExpect(status().isNoContent())
+                .andExpect(header().exists(SqlStatementBudgetFilter.STATEMENTS_HEADER));
+    }
+
+    @Test
+    @DisplayName("buscar livros: pagina e count (o indice de busca dispensa o count)")
+    @MaxStatements(2)
+    public void findTest() throws Exception{
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?author=renato&sort=title,asc")))
+                .andExpect(status().isOk());
+    }
+}
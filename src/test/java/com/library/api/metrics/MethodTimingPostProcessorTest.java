@@ -0,0 +1,63 @@
+package com.library.api.metrics;
+
+import com.library.api.exceptions.BusinessException;
+import com.library.api.model.Book;
+import com.library.api.service.BookService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MethodTimingPostProcessorTest {
+
+    SimpleMeterRegistry meterRegistry;
+    MethodTimingPostProcessor postProcessor;
+
+    @BeforeEach
+    public void setUp(){
+        meterRegistry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        postProcessor = new MethodTimingPostProcessor(beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    @Test
+    @DisplayName("mede as chamadas do service por metodo e excecao")
+    public void serviceTimerTest(){
+        //cenario
+        BookService target = Mockito.mock(BookService.class);
+        Mockito.when(target.getById(1L)).thenReturn(Optional.of(Book.builder().id(1L).build()));
+        Mockito.when(target.getBookByIsbn("123")).thenThrow(new BusinessException("erro"));
+        BookService service = (BookService) postProcessor.postProcessAfterInitialization(target, "bookService");
+
+        //execucao
+        service.getById(1L);
+        service.getById(1L);
+        Throwable exception = Assertions.catchThrowable(() -> service.getBookByIsbn("123"));
+
+        //verificacao
+        assertThat(exception).isInstanceOf(BusinessException.class);
+        Timer getById = meterRegistry.get("library.service")
+                .tags("type", "BookService", "method", "getById", "exception", "none").timer();
+        assertThat(getById.count()).isEqualTo(2);
+        assertThat(meterRegistry.get("library.service")
+                .tags("method", "getBookByIsbn", "exception", "BusinessException").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("nao altera beans fora de services, repositories e mappers")
+    public void otherBeansTest(){
+        Object bean = new Object();
+
+        assertThat(postProcessor.postProcessAfterInitialization(bean, "other")).isSameAs(bean);
+    }
+}
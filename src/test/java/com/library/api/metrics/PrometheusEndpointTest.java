@@ -0,0 +1,39 @@
+package com.library.api.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class PrometheusEndpointTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Test
+    @DisplayName("expoe endpoints, services, repositories, mappers e pool de conexoes no formato prometheus")
+    public void scrapeTest() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/api/books?title=aventuras")).andExpect(status().isOk());
+
+        mvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("status=\"200\",uri=\"/api/books\",quantile=\"0.99\"")))
+                .andExpect(content().string(containsString("library_service_seconds_bucket{")))
+                .andExpect(content().string(containsString("method=\"findViews\",type=\"BookService\",quantile=\"0.95\"")))
+                .andExpect(content().string(containsString("type=\"BookRepository\"")))
+                .andExpect(content().string(containsString("library_mapper_seconds_count{")))
+                .andExpect(content().string(containsString("hikaricp_connections_active")))
+                .andExpect(content().string(containsString("hibernate_second_level_cache_requests_total{")));
+    }
+}
@@ -0,0 +1,35 @@
+package com.library.api.metrics;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Abre um escopo do SqlStatementCounter em volta do metodo de teste (sem @BeforeEach) e confere
+ * o @MaxStatements. Requisicoes do MockMvc rodam na thread do teste, entao entram na conta.
+ */
+public class StatementBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(StatementBudgetExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(context.getUniqueId(), SqlStatementCounter.open());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        SqlStatementCounter.Scope scope = context.getStore(NAMESPACE)
+                .remove(context.getUniqueId(), SqlStatementCounter.Scope.class);
+        scope.close();
+
+        MaxStatements max = context.getRequiredTestMethod().getAnnotation(MaxStatements.class);
+        if (max != null) {
+            assertThat(scope.getStatements())
+                    .as("statements executados por %s", context.getDisplayName())
+                    .isLessThanOrEqualTo(max.value());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.library.api.model.repository;
 
 import com.library.api.model.Book;
+import org.hibernate.Session;
 import org.aspectj.apache.bcel.Repository;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
@@ -12,17 +13,30 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
 @DataJpaTest
+@Import(BookBatchWriter.class)
 public class BookRepositoryTest {
 
     @Autowired
@@ -31,6 +45,9 @@ public class BookRepositoryTest {
     @Autowired
     BookRepository repository;
 
+    @Autowired
+    BookBatchWriter batchWriter;
+
     @Test
     @DisplayName("retorna verdadeiro caso exista o livro na base com isbn informado")
     public void returnTrueWhenIsbnExists(){
@@ -102,4 +119,210 @@ public class BookRepositoryTest {
 
     }
 
+    @Test
+    @DisplayName("pagina por keyset sem repetir nem pular livros")
+    public void findAfterTest(){
+        //cenario
+        entityManager.persist(Book.builder().isbn("1").title("b").author("renato").build());
+        entityManager.persist(Book.builder().isbn("2").title("a").author("renato").build());
+        entityManager.persist(Book.builder().isbn("3").author("renato").build());
+        entityManager.persist(Book.builder().isbn("4").title("b").author("renato").build());
+        entityManager.persist(Book.builder().isbn("5").title("c").author("outro").build());
+
+        Example<Book> example = Example.of(Book.builder().author("RENATO").build(),
+                ExampleMatcher.matching().withIgnoreCase().withIgnoreNullValues()
+                        .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+
+        //execucao
+        List<String> asc = walk(example, Sort.Order.asc("title"));
+        List<String> desc = walk(example, Sort.Order.desc("title"));
+
+        //verificacao
+        assertThat(asc).containsExactly("3", "2", "1", "4");
+        assertThat(desc).containsExactly("4", "1", "2", "3");
+    }
+
+    private List<String> walk(Example<Book> example, Sort.Order order){
+        List<String> isbns = new ArrayList<>();
+        String lastKey = null;
+        Long lastId = null;
+        List<Book> page;
+        do {
+            page = repository.findAfter(example, order, lastKey, lastId, 2);
+            for (Book book : page) {
+                isbns.add(book.getIsbn());
+                lastKey = book.getTitle();
+                lastId = book.getId();
+            }
+        } while (!page.isEmpty());
+        return isbns;
+    }
+
+    @Test
+    @DisplayName("indice unico impede isbn duplicada")
+    public void duplicateIsbnTest(){
+        //cenario
+        entityManager.persist(Book.builder().isbn("123").title("as aventuras").author("renato").build());
+
+        //execucao
+        Throwable exception = org.assertj.core.api.Assertions.catchThrowable(() ->
+                repository.saveAndFlush(Book.builder().isbn("123").title("outro").author("outro").build()));
+
+        //verificacao
+        assertThat(exception).isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(exception.getMessage()).containsIgnoringCase(Book.UK_ISBN);
+    }
+
+    @Test
+    @DisplayName("grava lote de livros e encontra isbns existentes")
+    public void insertAllTest(){
+        //cenario
+        List<Book> books = Arrays.asList(
+                Book.builder().isbn("1").title("a").author("renato").build(),
+                Book.builder().isbn("2").title("b").author("renato").build(),
+                Book.builder().isbn("3").title("c").author("renato").build());
+
+        //execucao
+        batchWriter.insertAll(books);
+
+        //verificacao
+        assertThat(books).allMatch(book -> book.getId() != null);
+        assertThat(repository.count()).isEqualTo(3);
+        assertThat(repository.findExistingIsbns(Arrays.asList("2", "3", "4"))).containsExactlyInAnyOrder("2", "3");
+    }
+
+    @Test
+    @DisplayName("percorre os livros do filtro em ordem de id, desanexados do contexto")
+    public void streamAllTest(){
+        //cenario
+        Book third = entityManager.persist(Book.builder().isbn("3").title("c").author("renato").build());
+        Book first = entityManager.persist(Book.builder().isbn("1").title("a").author("renato").build());
+        entityManager.persist(Book.builder().isbn("2").title("b").author("outro").build());
+        entityManager.flush();
+        entityManager.clear();
+
+        Example<Book> example = Example.of(Book.builder().author("RENATO").build(),
+                ExampleMatcher.matching().withIgnoreCase().withIgnoreNullValues()
+                        .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+
+        //execucao
+        List<Book> books;
+        try (Stream<Book> stream = repository.streamAll(example, 1)) {
+            books = stream.collect(Collectors.toList());
+        }
+
+        //verificacao
+        assertThat(books).extracting(Book::getId).containsExactly(third.getId(), first.getId());
+        assertThat(books).noneMatch(book -> entityManager.getEntityManager().contains(book));
+    }
+
+    @Test
+    @DisplayName("atualiza e exclui so quando a versao confere")
+    public void conditionalUpdateTest(){
+        //cenario
+        Book book = entityManager.persistAndFlush(Book.builder().isbn("123").title("as aventuras").author("renato").build());
+        Long version = book.getVersion();
+        entityManager.clear();
+
+        //execucao
+        int stale = repository.updateIfVersion(book.getId(), "novo titulo", "renato", Arrays.asList(version + 1));
+        int updated = repository.updateIfVersion(book.getId(), "novo titulo", "renato", Arrays.asList(version));
+        int staleDelete = repository.deleteIfVersion(book.getId(), Arrays.asList(version));
+        Optional<Long> newVersion = repository.findVersionById(book.getId());
+        int deleted = repository.deleteIfVersion(book.getId(), Arrays.asList(version + 1));
+
+        //verificacao
+        assertThat(stale).isEqualTo(0);
+        assertThat(updated).isEqualTo(1);
+        assertThat(staleDelete).isEqualTo(0);
+        assertThat(newVersion).hasValue(version + 1);
+        assertThat(deleted).isEqualTo(1);
+        assertThat(repository.findVersionById(book.getId())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("cria indices compostos para as ordenacoes do cursor")
+    public void cursorIndexesTest(){
+        //execucao
+        List<?> columns = entityManager.getEntityManager().createNativeQuery(
+                "select index_name || ':' || column_name from information_schema.indexes " +
+                        "where table_name = 'BOOK' and index_name like 'IDX_BOOK_%' order by index_name, ordinal_position")
+                .getResultList();
+
+        //verificacao
+        assertThat(columns).containsExactly("IDX_BOOK_AUTHOR_ID:AUTHOR", "IDX_BOOK_AUTHOR_ID:ID",
+                "IDX_BOOK_TITLE_ID:TITLE", "IDX_BOOK_TITLE_ID:ID");
+    }
+
+    @Test
+    @DisplayName("update e delete diretos nao deixam o livro antigo no contexto de persistencia")
+    public void directWritesRefreshContextTest(){
+        //cenario
+        Book book = entityManager.persistAndFlush(Book.builder().isbn("123").title("as aventuras").author("renato").build());
+        Book other = entityManager.persistAndFlush(Book.builder().isbn("456").title("outro").author("renato").build());
+
+        //execucao
+        int updated = repository.updateTitleAndAuthor(book.getId(), "novo titulo", "maria");
+        Book reloaded = repository.findById(book.getId()).get();
+        int deleted = repository.deleteWhereId(other.getId());
+
+        //verificacao
+        assertThat(updated).isEqualTo(1);
+        assertThat(reloaded.getTitle()).isEqualTo("novo titulo");
+        assertThat(reloaded.getAuthor()).isEqualTo("maria");
+        assertThat(reloaded.getVersion()).isEqualTo(book.getVersion() + 1);
+        assertThat(deleted).isEqualTo(1);
+        assertThat(repository.findById(other.getId())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("trata versao nula de livros antigos como 0 e preenche no backfill")
+    public void nullVersionTest(){
+        //cenario: esquema anterior a coluna version, que aceitava null
+        Book book = entityManager.persistAndFlush(Book.builder().isbn("123").title("as aventuras").author("renato").build());
+        Book other = entityManager.persistAndFlush(Book.builder().isbn("456").title("outro").author("renato").build());
+        entityManager.getEntityManager().createNativeQuery("alter table book alter column version set null").executeUpdate();
+        entityManager.getEntityManager().createNativeQuery("update book set version = null").executeUpdate();
+        entityManager.clear();
+
+        //execucao
+        Optional<Long> version = repository.findVersionById(book.getId());
+        int updated = repository.updateIfVersion(book.getId(), "novo titulo", "renato", Arrays.asList(0L));
+        int backfilled = repository.backfillVersions();
+
+        //verificacao
+        assertThat(version).hasValue(0L);
+        assertThat(updated).isEqualTo(1);
+        assertThat(repository.findVersionById(book.getId())).hasValue(1L);
+        assertThat(backfilled).isEqualTo(1);
+        assertThat(repository.findVersionById(other.getId())).hasValue(0L);
+
+        //o alter table do H2 faz commit: desfaz o cenario para os outros testes
+        entityManager.getEntityManager().createNativeQuery("delete from book").executeUpdate();
+        entityManager.getEntityManager().createNativeQuery("alter table book alter column version set not null").executeUpdate();
+    }
+
+    @Test
+    @DisplayName("busca em projecoes BookView sem carregar entidades no contexto")
+    public void findViewsTest(){
+        //cenario
+        Book first = entityManager.persist(Book.builder().isbn("1").title("a").author("renato").build());
+        Book second = entityManager.persist(Book.builder().isbn("2").title("b").author("renato").build());
+        entityManager.persist(Book.builder().isbn("3").title("c").author("outro").build());
+        entityManager.flush();
+        entityManager.clear();
+
+        Example<Book> example = Example.of(Book.builder().author("renato").build(),
+                ExampleMatcher.matching().withIgnoreNullValues());
+
+        //execucao
+        List<BookView> page = repository.findViews(example, PageRequest.of(0, 1, Sort.by("title").descending()), 1);
+        List<BookView> byIds = repository.findViewsByIdIn(Arrays.asList(first.getId(), second.getId()));
+
+        //verificacao
+        assertThat(page).extracting(BookView::getIsbn).containsExactly("2");
+        assertThat(byIds).extracting(BookView::getTitle).containsExactlyInAnyOrder("a", "b");
+        assertThat(entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
 }
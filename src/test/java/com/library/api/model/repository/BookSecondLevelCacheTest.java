@@ -0,0 +1,119 @@
+package com.library.api.model.repository;
+
+import com.library.api.model.Book;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Example;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//cada chamada ao repository roda na propria transacao, como em producao
+@SpringBootTest
+@ActiveProfiles("test")
+public class BookSecondLevelCacheTest {
+
+    @Autowired
+    BookRepository repository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    Statistics statistics;
+    Book book;
+
+    @BeforeEach
+    public void setUp(){
+        book = repository.save(Book.builder().isbn("123").title("as aventuras").author("renato").build());
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void tearDown(){
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("busca por id e por isbn sem sql depois da primeira leitura")
+    public void findFromCacheTest(){
+        //execucao
+        repository.findByIsbn("123");
+        long statementsAfterFirstRead = statistics.getPrepareStatementCount();
+        Book byIsbn = repository.findByIsbn("123").get();
+        Book byId = repository.findById(book.getId()).get();
+
+        //verificacao
+        assertThat(byIsbn.getTitle()).isEqualTo("as aventuras");
+        assertThat(byId.getIsbn()).isEqualTo("123");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statementsAfterFirstRead);
+        assertThat(statistics.getNaturalIdCacheHitCount()).isGreaterThanOrEqualTo(1);
+        assertThat(statistics.getDomainDataRegionStatistics("book").getHitCount()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("update direto tira do cache o livro alterado")
+    public void updateEvictsBookTest(){
+        //cenario
+        repository.findById(book.getId());
+        repository.findByIsbn("123");
+
+        //execucao
+        int updated = repository.updateTitleAndAuthor(book.getId(), "novo titulo", "renato");
+        Book reloaded = repository.findById(book.getId()).get();
+        Book byIsbn = repository.findByIsbn("123").get();
+
+        //verificacao
+        assertThat(updated).isEqualTo(1);
+        assertThat(reloaded.getTitle()).isEqualTo("novo titulo");
+        assertThat(reloaded.getVersion()).isEqualTo(book.getVersion() + 1);
+        assertThat(byIsbn.getTitle()).isEqualTo("novo titulo");
+    }
+
+    @Test
+    @DisplayName("delete direto tira o livro e a isbn do cache")
+    public void deleteEvictsBookTest(){
+        //cenario
+        repository.findByIsbn("123");
+
+        //execucao
+        int deleted = repository.deleteWhereId(book.getId());
+        Book recreated = repository.save(Book.builder().isbn("123").title("outra edicao").author("renato").build());
+
+        //verificacao
+        assertThat(deleted).isEqualTo(1);
+        assertThat(repository.findById(book.getId())).isEmpty();
+        assertThat(repository.findByIsbn("123")).map(Book::getId).hasValue(recreated.getId());
+    }
+
+    @Test
+    @DisplayName("exportacao nao le nem grava no cache de segundo nivel")
+    public void streamAllIgnoresCacheTest(){
+        //execucao
+        long exported = transactionTemplate.execute(status -> {
+            try (Stream<Book> stream = repository.streamAll(Example.of(new Book()), 100)) {
+                return stream.count();
+            }
+        });
+
+        //verificacao
+        assertThat(exported).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCachePutCount()).isZero();
+        assertThat(entityManagerFactory.getCache().contains(Book.class, book.getId())).isFalse();
+    }
+}
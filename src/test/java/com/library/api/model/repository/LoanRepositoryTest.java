@@ -0,0 +1,138 @@
+package com.library.api.model.repository;
+
+import com.library.api.model.Book;
+import com.library.api.model.Loan;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class LoanRepositoryTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    LoanRepository repository;
+
+    @Test
+    @DisplayName("verifica se o livro tem empréstimo não devolvido")
+    public void existsByBookIdAndReturnedFalseTest(){
+        //cenario
+        Book loaned = entityManager.persist(Book.builder().isbn("1").title("a").author("renato").build());
+        Book returned = entityManager.persist(Book.builder().isbn("2").title("b").author("renato").build());
+        Book free = entityManager.persist(Book.builder().isbn("3").title("c").author("renato").build());
+        entityManager.persist(Loan.builder().book(loaned).customer("renato").loanDate(LocalDate.now()).build());
+        entityManager.persist(Loan.builder().book(returned).customer("renato").loanDate(LocalDate.now()).returned(true).build());
+
+        //execucao / verificacao
+        assertThat(repository.existsByBookIdAndReturnedFalse(loaned.getId())).isTrue();
+        assertThat(repository.existsByBookIdAndReturnedFalse(returned.getId())).isFalse();
+        assertThat(repository.existsByBookIdAndReturnedFalse(free.getId())).isFalse();
+    }
+
+    @Test
+    @DisplayName("carrega o livro do empréstimo sob demanda")
+    public void lazyBookTest(){
+        //cenario
+        Book book = entityManager.persist(Book.builder().isbn("1").title("a").author("renato").build());
+        Long id = entityManager.persistAndGetId(
+                Loan.builder().book(book).customer("renato").loanDate(LocalDate.now()).build(), Long.class);
+        entityManager.flush();
+        entityManager.clear();
+
+        //execucao
+        Loan loan = repository.findById(id).get();
+
+        //verificacao
+        assertThat(entityManager.getEntityManager().getEntityManagerFactory().getPersistenceUnitUtil()
+                .isLoaded(loan, "book")).isFalse();
+        assertThat(loan.getBook().getIsbn()).isEqualTo("1");
+    }
+
+    @Test
+    @DisplayName("marca devolvidos com update em lote, sem carregar entidades")
+    public void markReturnedTest(){
+        //cenario
+        Book first = entityManager.persist(Book.builder().isbn("1").title("a").author("renato").build());
+        Book second = entityManager.persist(Book.builder().isbn("2").title("b").author("renato").build());
+        Long open = entityManager.persistAndGetId(Loan.builder().book(first).customer("renato")
+                .loanDate(LocalDate.now()).activeBookId(first.getId()).build(), Long.class);
+        Long returned = entityManager.persistAndGetId(Loan.builder().book(second).customer("renato")
+                .loanDate(LocalDate.now()).returned(true).build(), Long.class);
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        //execucao
+        List<LoanStatus> byId = repository.findStatusByIdIn(Arrays.asList(open, returned, 99L));
+        List<LoanStatus> byIsbn = repository.findActiveByIsbnIn(Arrays.asList("1", "2"));
+        List<Long> locked = repository.lockOpenIdsIn(Arrays.asList(open, returned, 99L));
+        int updated = repository.markReturned(Arrays.asList(open, returned));
+
+        //verificacao
+        assertThat(byId).extracting(LoanStatus::getId, LoanStatus::getIsbn, LoanStatus::getReturned)
+                .containsExactlyInAnyOrder(tuple(open, "1", false), tuple(returned, "2", true));
+        assertThat(byIsbn).extracting(LoanStatus::getId).containsExactly(open);
+        assertThat(locked).containsExactly(open);
+        assertThat(updated).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        Loan loan = repository.findById(open).get();
+        assertThat(loan.isReturned()).isTrue();
+        assertThat(loan.getActiveBookId()).isNull();
+    }
+
+    @Test
+    @DisplayName("historico do cliente com title/isbn do livro em um unico sql, paginado por id")
+    public void findHistoryTest(){
+        //cenario
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Book book = entityManager.persist(Book.builder().isbn("isbn " + i).title("titulo " + i).author("renato").build());
+            ids.add(entityManager.persistAndGetId(Loan.builder().book(book).customer(i < 4 ? "renato" : "maria")
+                    .loanDate(LocalDate.now()).returned(i == 0).build(), Long.class));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        //execucao
+        List<LoanHistory> first = repository.findHistory("renato", null, null, null, 2);
+        long statements = statistics.getPrepareStatementCount();
+        List<LoanHistory> second = repository.findHistory("renato", null, null, first.get(1).getId(), 2);
+        List<LoanHistory> open = repository.findHistory("renato", null, false, null, 10);
+        List<LoanHistory> byIsbn = repository.findHistory(null, "isbn 4", null, null, 10);
+
+        //verificacao
+        assertThat(statements).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(first).extracting(LoanHistory::getId).containsExactly(ids.get(3), ids.get(2));
+        assertThat(first.get(0).getTitle()).isEqualTo("titulo 3");
+        assertThat(first.get(0).getIsbn()).isEqualTo("isbn 3");
+        assertThat(second).extracting(LoanHistory::getId).containsExactly(ids.get(1), ids.get(0));
+        assertThat(open).extracting(LoanHistory::getId).containsExactly(ids.get(3), ids.get(2), ids.get(1));
+        assertThat(byIsbn).extracting(LoanHistory::getCustomer).containsExactly("maria");
+    }
+}
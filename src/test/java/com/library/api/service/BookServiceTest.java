@@ -0,0 +1,579 @@
+package com.library.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library.api.api.dto.BookDTO;
+import com.library.api.exceptions.BusinessException;
+import com.library.api.model.Book;
+import com.library.api.model.repository.BookBatchWriter;
+import com.library.api.model.repository.BookRepository;
+import com.library.api.model.repository.BookView;
+import com.library.api.service.event.BookChangedEvent;
+import com.library.api.service.impl.BookServiceImpl;
+import com.library.api.service.search.BookCountCache;
+import com.library.api.service.search.BookSearchIndex;
+import com.library.api.service.search.CountStrategy;
+import com.library.api.service.search.CountedPage;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookServiceTest {
+
+    BookService service;
+
+    @MockBean
+    BookRepository repository;
+
+    @BeforeEach
+    public void setService(){
+        this.service = new BookServiceImpl( repository );
+    }
+
+    @Test
+    @DisplayName("salvar livro")
+    public void saveBookTest(){
+
+        //cenario
+        Book book = Book.builder()
+                .isbn("123")
+                .author("renato")
+                .title("as aventuras").build();
+
+        Mockito.when(repository.saveAndFlush(book))
+                .thenReturn(
+                        Book.builder()
+                        .id(1L)
+                        .isbn("123")
+                        .title("as aventuras")
+                        .author("renato").build()
+                );
+
+        //execucao
+        Book savedBook = service.save(book);
+
+        //verificacao
+        assertThat(savedBook.getId()).isNotNull();
+        assertThat(savedBook.getIsbn()).isEqualTo("123");
+        assertThat(savedBook.getTitle()).isEqualTo("as aventuras");
+        assertThat(savedBook.getAuthor()).isEqualTo("renato");
+    }
+
+    @Test
+    @DisplayName("lança erro ao cadastrar isbn duplicado")
+    public void shouldNotSaveBookWithDuplicateIsbn(){
+        //cenario
+        Book book = Book.builder()
+                .isbn("123")
+                .author("renato")
+                .title("as aventuras").build();
+
+        Mockito.when(repository.saveAndFlush(book))
+                .thenThrow(new DataIntegrityViolationException("could not execute statement",
+                        new ConstraintViolationException("unique", new SQLException(), "UK_BOOK_ISBN_INDEX_1")));
+
+        //execucao
+        Throwable exception =  Assertions.catchThrowable( ()-> service.save(book) );
+
+        //verificacao
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("isbn já cadastrada");
+
+        Mockito.verify(repository,Mockito.never()).existsByIsbn(Mockito.anyString());
+    }
+
+    @Test
+    @DisplayName("repassa outras violacoes de integridade")
+    public void shouldRethrowOtherIntegrityViolations(){
+        Book book = Book.builder().isbn("123").build();
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("not null", new SQLException(), "TITLE"));
+
+        Mockito.when(repository.saveAndFlush(book)).thenThrow(violation);
+
+        Throwable exception =  Assertions.catchThrowable( ()-> service.save(book) );
+
+        assertThat(exception).isSameAs(violation);
+    }
+
+    @Test
+    @DisplayName("busca livro por id")
+    public void getByIdTest(){
+        //cenario
+        Long id = 1l;
+
+        Book book = Book.builder()
+                .isbn("123")
+                .author("renato")
+                .title("as aventuras").build();
+        book.setId(id);
+        Mockito.when(repository.findById(id)).thenReturn(Optional.of(book));
+
+        //execucao
+        Optional<Book> foundBook = service.getById(id);
+
+        //verificacao
+        assertThat(foundBook.isPresent()).isTrue();
+        assertThat(foundBook.get().getId()).isEqualTo(id);
+        assertThat(foundBook.get().getTitle()).isEqualTo(book.getTitle());
+        assertThat(foundBook.get().getAuthor()).isEqualTo(book.getAuthor());
+        assertThat(foundBook.get().getIsbn()).isEqualTo(book.getIsbn());
+    }
+
+
+    @Test
+    @DisplayName("lança erro ao nao encontrar livro por id")
+    public void bookNotFoundgetByIdTest(){
+        //cenario
+        Long id = 1l;
+
+        Mockito.when(repository.findById(id)).thenReturn(Optional.empty());
+
+        //execucao
+        Optional<Book> book = service.getById(id);
+
+        //verificacao
+        assertThat(book.isPresent()).isFalse();
+
+    }
+
+    @Test
+    @DisplayName("deleta um livro com id")
+    public void deleteBook(){
+        //cenario
+        Book book = Book.builder()
+                .id(1L)
+                .isbn("123")
+                .title("as aventuras")
+                .author("renato").build();
+
+        //execucao
+       org.junit.jupiter.api.Assertions.assertDoesNotThrow( ()-> service.delete(book) );
+
+        //verificacao
+        Mockito.verify(repository,Mockito.times(1)).delete(book);
+
+    }
+
+    @Test
+    @DisplayName("erro ao tentar deletar livro inexistente ")
+    public void deleteInvalidBookTest(){
+        //cenario
+        Book book = new Book();
+
+        //execucao
+        org.junit.jupiter.api.Assertions
+                .assertThrows(IllegalArgumentException.class, ()-> service.delete(book));
+
+        //verificacao
+        Mockito.verify(repository,Mockito.never()).delete(book);
+    }
+
+    @Test
+    @DisplayName("atualiza um livro com id")
+    public void updateBook(){
+        //cenario
+        Book book = Book.builder().id(1L).build();
+
+        Book updateBook = Book.builder()
+                .id(1L)
+                .isbn("123")
+                .title("as aventuras")
+                .author("renato").build();
+
+        Mockito.when(repository.save(updateBook)).thenReturn(updateBook);
+
+        //execucao
+        book = service.update(updateBook);
+
+        //verificacao
+       assertThat(book.getId()).isEqualTo(updateBook.getId());
+       assertThat(book.getAuthor()).isEqualTo(updateBook.getAuthor());
+       assertThat(book.getTitle()).isEqualTo(updateBook.getTitle());
+       assertThat(book.getIsbn()).isEqualTo(updateBook.getIsbn());
+
+
+    }
+
+    @Test
+    @DisplayName("erro ao tentar atualizar livro inexistente ")
+    public void updateInvalidBookTest(){
+        //cenario
+        Book book = new Book();
+
+        //execucao
+        org.junit.jupiter.api.Assertions
+                .assertThrows(IllegalArgumentException.class, ()-> service.update(book));
+
+        //verificacao
+        Mockito.verify(repository,Mockito.never()).save(book);
+    }
+
+    @Test
+    @DisplayName("filtra livros por title e author")
+    public void findBookTest(){
+
+        PageRequest pageRequest = PageRequest.of(0,10);
+
+        Book book = Book.builder()
+                .id(1L)
+                .isbn("123")
+                .title("as aventuras")
+                .author("renato").build();
+
+        Page<Book> page = new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0,10),1);
+        Mockito.when(repository.findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class)))
+                .thenReturn(page);
+
+        Page<Book> result = service.find(book,pageRequest);
+
+        assertThat(result.getTotalElements()).isEqualTo(1);
+        assertThat(result.getContent()).isEqualTo(Arrays.asList(book));
+        assertThat(result.getPageable().getPageNumber()).isEqualTo(0);
+        assertThat(result.getPageable().getPageSize()).isEqualTo(10);
+
+    }
+
+    @Test
+    @DisplayName("filtra livros pelo indice de busca")
+    public void findBookWithIndexTest(){
+        BookSearchIndex searchIndex = Mockito.mock(BookSearchIndex.class);
+        service = new BookServiceImpl(repository, searchIndex, null, event -> {});
+
+        Book filter = Book.builder().title("aventuras").build();
+        Book book = Book.builder()
+                .id(2L)
+                .isbn("123")
+                .title("as aventuras")
+                .author("renato").build();
+
+        Mockito.when(searchIndex.isReady()).thenReturn(true);
+        Mockito.when(searchIndex.search(filter)).thenReturn(Optional.of(new long[]{1L, 2L, 3L}));
+        Mockito.when(repository.findAllById(Arrays.asList(2L))).thenReturn(Arrays.asList(book));
+
+        Page<Book> result = service.find(filter, PageRequest.of(1,1));
+
+        assertThat(result.getTotalElements()).isEqualTo(3);
+        assertThat(result.getContent()).isEqualTo(Arrays.asList(book));
+        Mockito.verify(repository, Mockito.never()).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+    }
+
+    @Test
+    @DisplayName("filtra livros com total estimado, sem count")
+    public void findBookEstimatedCountTest(){
+        PageRequest pageRequest = PageRequest.of(1,2);
+        Book filter = Book.builder().title("aventuras").build();
+        Book book = Book.builder().id(1L).title("as aventuras").build();
+
+        Mockito.when(repository.findContent(Mockito.any(Example.class), Mockito.eq(pageRequest), Mockito.eq(3)))
+                .thenReturn(Arrays.asList(book, book, book));
+
+        CountedPage<Book> result = service.find(filter, pageRequest, CountStrategy.ESTIMATED);
+
+        assertThat(result.getContent()).hasSize(2);
+        assertThat(result.getTotalElements()).isEqualTo(5);
+        assertThat(result.isTotalExact()).isFalse();
+        assertThat(result.hasNext()).isTrue();
+        assertThat(result.getCountStrategy()).isEqualTo(CountStrategy.ESTIMATED);
+        Mockito.verify(repository, Mockito.never()).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+    }
+
+    @Test
+    @DisplayName("reaproveita o total em cache ate uma escrita")
+    public void findBookCachedCountTest(){
+        BookCountCache countCache = new BookCountCache(Duration.ofMinutes(1), 100);
+        service = new BookServiceImpl(repository, null, countCache, event -> countCache.invalidate());
+
+        PageRequest pageRequest = PageRequest.of(0,10);
+        Book filter = Book.builder().title("aventuras").build();
+        Book book = Book.builder().id(1L).isbn("123").title("as aventuras").build();
+
+        Mockito.when(repository.findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class)))
+                .thenReturn(new PageImpl<Book>(Arrays.asList(book), pageRequest, 1));
+        Mockito.when(repository.findContent(Mockito.any(Example.class), Mockito.eq(pageRequest), Mockito.eq(10)))
+                .thenReturn(Arrays.asList(book));
+
+        service.find(filter, pageRequest, CountStrategy.CACHED);
+        CountedPage<Book> cached = service.find(Book.builder().title("AVENTURAS").build(), pageRequest, CountStrategy.CACHED);
+
+        assertThat(cached.getTotalElements()).isEqualTo(1);
+        assertThat(cached.getCountStrategy()).isEqualTo(CountStrategy.CACHED);
+        Mockito.verify(repository, Mockito.times(1)).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+
+        Mockito.when(repository.save(book)).thenReturn(book);
+        service.update(book);
+        service.find(filter, pageRequest, CountStrategy.CACHED);
+
+        Mockito.verify(repository, Mockito.times(2)).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+    }
+
+    @Test
+    @DisplayName("filtro nulo e livro vazio dividem o total em cache")
+    public void findBookCachedCountNullFilterTest(){
+        BookCountCache countCache = new BookCountCache(Duration.ofMinutes(1), 100);
+        service = new BookServiceImpl(repository, null, countCache, event -> countCache.invalidate());
+
+        PageRequest pageRequest = PageRequest.of(0,10);
+        Book book = Book.builder().id(1L).isbn("123").title("as aventuras").build();
+
+        Mockito.when(repository.findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class)))
+                .thenReturn(new PageImpl<Book>(Arrays.asList(book), pageRequest, 1));
+        Mockito.when(repository.findContent(Mockito.any(Example.class), Mockito.eq(pageRequest), Mockito.eq(10)))
+                .thenReturn(Arrays.asList(book));
+
+        service.find(null, pageRequest, CountStrategy.CACHED);
+        CountedPage<Book> cached = service.find(new Book(), pageRequest, CountStrategy.CACHED);
+
+        assertThat(cached.getTotalElements()).isEqualTo(1);
+        Mockito.verify(repository, Mockito.times(1)).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+        Mockito.verify(repository, Mockito.times(1)).findContent(Mockito.any(Example.class), Mockito.eq(pageRequest), Mockito.eq(10));
+    }
+
+    @Test
+    @DisplayName("importa livros em lotes, rejeitando isbn repetida e ja cadastrada")
+    public void importBooksTest(){
+        BookBatchWriter batchWriter = Mockito.mock(BookBatchWriter.class);
+        List<Object> events = new ArrayList<>();
+        service = new BookServiceImpl(repository, null, null, events::add, batchWriter, null, 2, 10, 100, 500, 100);
+
+        List<BookImportRow> rows = Arrays.asList(
+                BookImportRow.valid(1, Book.builder().isbn("1").title("a").author("a").build()),
+                BookImportRow.valid(2, Book.builder().isbn("1").title("b").author("b").build()),
+                BookImportRow.invalid(3, "3", "title must not be empty"),
+                BookImportRow.valid(4, Book.builder().isbn("4").title("d").author("d").build()),
+                BookImportRow.valid(5, Book.builder().isbn("5").title("e").author("e").build()));
+
+        Mockito.when(repository.findExistingIsbns(Mockito.anyCollection())).thenReturn(new ArrayList<>());
+        Mockito.when(repository.findExistingIsbns(Mockito.argThat(isbns -> isbns.contains("5")))).thenReturn(Arrays.asList("5"));
+
+        BookImportReport report = service.importBooks(rows.iterator());
+
+        assertThat(report.getReceived()).isEqualTo(5);
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getRejected()).isEqualTo(3);
+        assertThat(report.getErrors()).extracting(BookImportReport.RowError::getLine).containsExactly(2L, 3L, 5L);
+        assertThat(report.getErrors()).extracting(BookImportReport.RowError::getMessage)
+                .containsExactly("isbn repetida no arquivo", "title must not be empty", "isbn já cadastrada");
+        Mockito.verify(batchWriter).insertAll(Arrays.asList(rows.get(0).getBook()));
+        Mockito.verify(batchWriter).insertAll(Arrays.asList(rows.get(3).getBook()));
+        assertThat(events).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("importacao casa a isbn devolvida pelo banco mesmo com outra caixa ou espacos")
+    public void importBooksCollationTest(){
+        BookBatchWriter batchWriter = Mockito.mock(BookBatchWriter.class);
+        service = new BookServiceImpl(repository, null, null, event -> {}, batchWriter, null, 10, 10, 100, 500, 100);
+
+        List<BookImportRow> rows = Arrays.asList(
+                BookImportRow.valid(1, Book.builder().isbn("abc").title("a").author("a").build()),
+                BookImportRow.valid(2, Book.builder().isbn("def").title("b").author("b").build()));
+        //collation case-insensitive e PAD SPACE: o banco devolve a isbn como esta gravada
+        Mockito.when(repository.findExistingIsbns(Mockito.anyCollection())).thenReturn(Arrays.asList("ABC ", "abc"));
+
+        BookImportReport report = service.importBooks(rows.iterator());
+
+        assertThat(report.getImported()).isEqualTo(1);
+        assertThat(report.getErrors()).extracting(BookImportReport.RowError::getLine).containsExactly(1L);
+        assertThat(report.getErrors()).extracting(BookImportReport.RowError::getMessage).containsExactly("isbn já cadastrada");
+        Mockito.verify(batchWriter).insertAll(Arrays.asList(rows.get(1).getBook()));
+    }
+
+    @Test
+    @DisplayName("update com If-Match: versao diferente falha, livro inexistente fica vazio")
+    public void conditionalUpdateTest(){
+        //cenario
+        Mockito.when(repository.updateIfVersion(Mockito.anyLong(), Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(0);
+        Mockito.when(repository.findVersionById(1L)).thenReturn(Optional.of(4L));
+        Mockito.when(repository.findVersionById(2L)).thenReturn(Optional.empty());
+
+        //execucao
+        Throwable stale = Assertions.catchThrowable(() -> service.update(1L, "titulo", "autor", Arrays.asList(3L)));
+        Optional<Book> missing = service.update(2L, "titulo", "autor", Arrays.asList(3L));
+
+        //verificacao
+        assertThat(stale).isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(missing).isEmpty();
+    }
+
+    @Test
+    @DisplayName("update com If-Match confere a versao no proprio update e rele o livro")
+    public void conditionalUpdateSuccessTest(){
+        //cenario
+        Book updated = Book.builder().id(1L).title("titulo").author("autor").isbn("123").version(4L).build();
+        Mockito.when(repository.updateIfVersion(1L, "titulo", "autor", Arrays.asList(3L))).thenReturn(1);
+        Mockito.when(repository.findById(1L)).thenReturn(Optional.of(updated));
+
+        //execucao
+        Optional<Book> book = service.update(1L, "titulo", "autor", Arrays.asList(3L));
+
+        //verificacao
+        assertThat(book).map(Book::getVersion).hasValue(4L);
+        Mockito.verify(repository, Mockito.never()).findVersionById(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("update direto publica o livro relido, com todos os campos")
+    public void updatePublishesPersistedBookTest(){
+        //cenario
+        List<Object> events = new ArrayList<>();
+        service = new BookServiceImpl(repository, null, null, events::add);
+        Book persisted = Book.builder().id(1L).title("titulo").author("autor").isbn("123").version(4L).build();
+        Mockito.when(repository.updateTitleAndAuthor(1L, "titulo", "autor")).thenReturn(1);
+        Mockito.when(repository.findById(1L)).thenReturn(Optional.of(persisted));
+
+        //execucao
+        service.update(1L, "titulo", "autor", null);
+
+        //verificacao
+        assertThat(events).hasSize(1);
+        BookChangedEvent event = (BookChangedEvent) events.get(0);
+        assertThat(event.getType()).isEqualTo(BookChangedEvent.Type.UPDATED);
+        assertThat(event.getBook().getIsbn()).isEqualTo("123");
+    }
+
+    @Test
+    @DisplayName("update nao aproveita um GET do mesmo livro iniciado antes dele")
+    public void updateSkipsInFlightLookupTest() throws Exception{
+        //cenario
+        Book stale = Book.builder().id(1L).title("antigo").author("autor").isbn("123").version(3L).build();
+        Book fresh = Book.builder().id(1L).title("titulo").author("autor").isbn("123").version(4L).build();
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger reads = new AtomicInteger();
+        Mockito.when(repository.findById(1L)).thenAnswer(invocation -> {
+            if (reads.getAndIncrement() == 0) {
+                reading.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return Optional.of(stale);
+            }
+            return Optional.of(fresh);
+        });
+        Mockito.when(repository.updateTitleAndAuthor(1L, "titulo", "autor")).thenReturn(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<Optional<Book>> get = executor.submit(() -> service.getById(1L));
+            reading.await(5, TimeUnit.SECONDS);
+
+            //execucao
+            Optional<Book> updated = service.update(1L, "titulo", "autor", null);
+            release.countDown();
+
+            //verificacao
+            assertThat(updated).map(Book::getVersion).hasValue(4L);
+            assertThat(get.get(5, TimeUnit.SECONDS)).map(Book::getVersion).hasValue(3L);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("update e delete sem If-Match decidem o 404 pelas linhas afetadas")
+    public void directUpdateAndDeleteTest(){
+        //cenario
+        Mockito.when(repository.updateTitleAndAuthor(1L, "titulo", "autor")).thenReturn(0);
+        Mockito.when(repository.deleteWhereId(1L)).thenReturn(0);
+        Mockito.when(repository.deleteWhereId(2L)).thenReturn(1);
+
+        //execucao
+        Optional<Book> updated = service.update(1L, "titulo", "autor", null);
+        boolean missing = service.delete(1L, null);
+        boolean deleted = service.delete(2L, null);
+
+        //verificacao
+        assertThat(updated).isEmpty();
+        assertThat(missing).isFalse();
+        assertThat(deleted).isTrue();
+        Mockito.verify(repository, Mockito.never()).findById(Mockito.anyLong());
+        Mockito.verify(repository, Mockito.never()).findVersionById(Mockito.anyLong());
+    }
+
+
+    @Test
+    @DisplayName("consulta em lote: IN por lote, ordem pedida e chaves inexistentes")
+    public void getAllTest(){
+        //cenario
+        service = new BookServiceImpl(repository, null, null, event -> {}, null, null, 500, 1000, 1000, 10, 2);
+        Mockito.when(repository.findAllById(Arrays.asList(3L, 1L)))
+                .thenReturn(Arrays.asList(Book.builder().id(1L).isbn("a").build(), Book.builder().id(3L).isbn("c").build()));
+        Mockito.when(repository.findAllById(Arrays.asList(9L))).thenReturn(new ArrayList<>());
+        Mockito.when(repository.findByIsbnIn(Arrays.asList("x", "b")))
+                .thenReturn(Arrays.asList(Book.builder().id(2L).isbn("b").build()));
+
+        //execucao
+        BookBatch batch = service.getAll(Arrays.asList(3L, 1L, 3L, 9L), Arrays.asList("x", "b"));
+
+        //verificacao
+        assertThat(batch.getBooks()).extracting(Book::getId).containsExactly(3L, 1L, 2L);
+        assertThat(batch.getMissingIds()).containsExactly(9L);
+        assertThat(batch.getMissingIsbns()).containsExactly("x");
+        Mockito.verify(repository, Mockito.times(2)).findAllById(Mockito.any());
+    }
+
+    @Test
+    @DisplayName("consulta em lote recusa requisicao vazia ou acima do limite")
+    public void getAllLimitTest(){
+        //cenario
+        service = new BookServiceImpl(repository, null, null, event -> {}, null, null, 500, 1000, 1000, 2, 2);
+
+        //execucao
+        Throwable empty = Assertions.catchThrowable(() -> service.getAll(null, new ArrayList<>()));
+        Throwable tooMany = Assertions.catchThrowable(() -> service.getAll(Arrays.asList(1L, 2L), Arrays.asList("a")));
+
+        //verificacao
+        assertThat(empty).isInstanceOf(BusinessException.class).hasMessage("informe ids ou isbns dos livros");
+        assertThat(tooMany).isInstanceOf(BusinessException.class).hasMessage("no máximo 2 livros por consulta");
+        Mockito.verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("busca em projecoes: pagina e count so quando a pagina enche")
+    public void findViewsTest(){
+        //cenario
+        PageRequest pageRequest = PageRequest.of(0, 2);
+        Mockito.when(repository.findViews(Mockito.any(Example.class), Mockito.eq(pageRequest), Mockito.eq(2)))
+                .thenReturn(Arrays.asList(new BookView(1L, "as aventuras", "renato", "123")));
+
+        //execucao
+        CountedPage<BookView> result = service.findViews(Book.builder().title("aventuras").build(), pageRequest,
+                CountStrategy.EXACT);
+
+        //verificacao
+        assertThat(result.getContent()).extracting(BookView::getIsbn).containsExactly("123");
+        assertThat(result.getTotalElements()).isEqualTo(1);
+        Mockito.verify(repository, Mockito.never()).count(Mockito.any(Example.class));
+        Mockito.verify(repository, Mockito.never()).findAll(Mockito.any(Example.class), Mockito.any(Pageable.class));
+    }
+}
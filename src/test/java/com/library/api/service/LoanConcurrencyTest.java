@@ -0,0 +1,205 @@
+package com.library.api.service;
+
+import com.library.api.exceptions.BusinessException;
+import com.library.api.model.Book;
+import com.library.api.model.Loan;
+import com.library.api.model.repository.BookRepository;
+import com.library.api.model.repository.LoanBatchWriter;
+import com.library.api.model.repository.LoanRepository;
+import com.library.api.service.impl.LoanServiceImpl;
+import com.library.api.service.writebehind.LoanWriteBehindQueue;
+import com.library.api.service.writebehind.LoanWriteMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//muitos clientes pedindo o mesmo livro ao mesmo tempo, com transacoes reais (sem o rollback do teste)
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import(LoanBatchWriter.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class LoanConcurrencyTest {
+
+    static final int THREADS = 32;
+    static final int ROUNDS = 20;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    LoanBatchWriter loanBatchWriter;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    Book book;
+
+    @BeforeEach
+    public void setUp(){
+        book = bookRepository.save(Book.builder().isbn("123").title("as aventuras").author("renato").build());
+    }
+
+    @AfterEach
+    public void tearDown(){
+        loanRepository.deleteAllInBatch();
+        bookRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @DisplayName("nunca ha mais de um empréstimo ativo por livro numa instancia")
+    public void singleInstanceTest() throws Exception {
+        LoanService service = new LoanServiceImpl(loanRepository, 500, 5000);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            int loaned = race(i -> service);
+
+            assertThat(loaned).isEqualTo(1);
+            assertThat(activeLoans()).isEqualTo(1);
+            returnAll();
+        }
+    }
+
+    @Test
+    @DisplayName("o indice garante um empréstimo ativo entre instancias")
+    public void manyInstancesTest() throws Exception {
+        //um service por thread: o lock local nao protege, so o banco
+        List<LoanService> services = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            services.add(new LoanServiceImpl(loanRepository, 500, 5000));
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            int loaned = race(services::get);
+
+            assertThat(loaned).isEqualTo(1);
+            assertThat(activeLoans()).isEqualTo(1);
+            returnAll();
+        }
+    }
+
+    @Test
+    @DisplayName("em write-behind tambem ha um único empréstimo ativo por livro")
+    public void writeBehindTest() throws Exception {
+        LoanWriteBehindQueue queue = new LoanWriteBehindQueue(loanBatchWriter, new SimpleMeterRegistry(),
+                LoanWriteMode.WRITE_BEHIND, 100, 16, Duration.ofMillis(5));
+        LoanService service = new LoanServiceImpl(loanRepository, 500, 5000, queue);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                int loaned = race(i -> service);
+
+                assertThat(loaned).isEqualTo(1);
+                assertThat(activeLoans()).isEqualTo(1);
+                returnAll();
+            }
+        } finally {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("devolucoes concorrentes do mesmo empréstimo: so uma devolve")
+    public void concurrentReturnTest() throws Exception {
+        LoanService service = new LoanServiceImpl(loanRepository, 500, 5000);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            Long id = loanRepository.save(Loan.builder().book(book).customer("renato").loanDate(LocalDate.now())
+                    .activeBookId(book.getId()).build()).getId();
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            CyclicBarrier start = new CyclicBarrier(THREADS);
+            List<Future<LoanReturnOutcome.Status>> futures = new ArrayList<>();
+            try {
+                for (int i = 0; i < THREADS; i++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        return transaction.execute(status -> service.returnLoans(Collections.singletonList(id),
+                                Collections.singletonList(book.getIsbn())).get(0).getStatus());
+                    }));
+                }
+                int returned = 0;
+                for (Future<LoanReturnOutcome.Status> future : futures) {
+                    if (future.get(30, TimeUnit.SECONDS) == LoanReturnOutcome.Status.RETURNED) {
+                        returned++;
+                    }
+                }
+
+                assertThat(returned).isEqualTo(1);
+                assertThat(activeLoans()).isZero();
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    //dispara THREADS pedidos juntos; todo pedido ou empresta ou falha com BusinessException
+    private int race(IntFunction<LoanService> serviceOf) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        AtomicInteger loaned = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                LoanService service = serviceOf.apply(i);
+                String customer = "cliente " + i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        service.save(Loan.builder().book(book).customer(customer).loanDate(LocalDate.now()).build());
+                        loaned.incrementAndGet();
+                    } catch (BusinessException ex) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(loaned.get() + rejected.get()).isEqualTo(THREADS);
+        return loaned.get();
+    }
+
+    private long activeLoans() {
+        return loanRepository.findAll().stream().filter(loan -> !loan.isReturned()).count();
+    }
+
+    private void returnAll() {
+        List<Loan> loans = loanRepository.findAll();
+        for (Loan loan : loans) {
+            loan.setReturned(true);
+            loan.setActiveBookId(null);
+        }
+        loanRepository.saveAll(loans);
+    }
+}
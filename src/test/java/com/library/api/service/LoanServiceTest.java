@@ -0,0 +1,205 @@
+package com.library.api.service;
+
+import com.library.api.exceptions.BusinessException;
+import com.library.api.model.Book;
+import com.library.api.model.Loan;
+import com.library.api.model.repository.LoanRepository;
+import com.library.api.model.repository.LoanStatus;
+import com.library.api.service.impl.LoanServiceImpl;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class LoanServiceTest {
+
+    LoanService service;
+
+    @MockBean
+    LoanRepository repository;
+
+    @BeforeEach
+    public void setService(){
+        this.service = new LoanServiceImpl(repository);
+    }
+
+    @Test
+    @DisplayName("salvar empréstimo")
+    public void saveLoanTest(){
+        //cenario
+        Book book = Book.builder().id(1L).isbn("123").build();
+        Loan loan = Loan.builder().book(book).customer("renato").loanDate(LocalDate.now()).build();
+        Loan saved = Loan.builder().id(1L).book(book).customer("renato").loanDate(loan.getLoanDate()).build();
+
+        Mockito.when(repository.existsByBookIdAndReturnedFalse(1L)).thenReturn(false);
+        Mockito.when(repository.saveAndFlush(loan)).thenReturn(saved);
+
+        //execucao
+        Loan result = service.save(loan);
+
+        //verificacao
+        assertThat(result.getId()).isEqualTo(1L);
+        assertThat(result.getCustomer()).isEqualTo("renato");
+        assertThat(loan.getActiveBookId()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("erro ao emprestar livro já emprestado")
+    public void loanedBookSaveTest(){
+        //cenario
+        Loan loan = Loan.builder().book(Book.builder().id(1L).build()).customer("renato").build();
+        Mockito.when(repository.existsByBookIdAndReturnedFalse(1L)).thenReturn(true);
+
+        //execucao
+        Throwable exception = Assertions.catchThrowable(() -> service.save(loan));
+
+        //verificacao
+        assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("book already borrowed");
+        Mockito.verify(repository, Mockito.never()).saveAndFlush(loan);
+    }
+
+    @Test
+    @DisplayName("erro quando o indice de empréstimo ativo rejeita o insert")
+    public void activeLoanConstraintTest(){
+        //cenario
+        Loan loan = Loan.builder().book(Book.builder().id(1L).build()).customer("renato").build();
+        Mockito.when(repository.existsByBookIdAndReturnedFalse(1L)).thenReturn(false);
+        Mockito.when(repository.saveAndFlush(loan)).thenThrow(new DataIntegrityViolationException("insert",
+                new ConstraintViolationException("unique", new SQLException(), "UK_LOAN_ACTIVE_BOOK_INDEX_2")));
+
+        //execucao
+        Throwable exception = Assertions.catchThrowable(() -> service.save(loan));
+
+        //verificacao
+        assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("book already borrowed");
+    }
+
+    @Test
+    @DisplayName("empréstimo em andamento so bloqueia o proprio livro")
+    public void lockPerBookTest() throws Exception{
+        //cenario: 1 e 2833 caiam no mesmo stripe dos antigos 1024 locks
+        Loan first = Loan.builder().book(Book.builder().id(1L).build()).customer("renato").build();
+        Loan sameBook = Loan.builder().book(Book.builder().id(1L).build()).customer("maria").build();
+        Loan otherBook = Loan.builder().book(Book.builder().id(2833L).build()).customer("maria").build();
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(repository.existsByBookIdAndReturnedFalse(Mockito.anyLong())).thenReturn(false);
+        Mockito.when(repository.saveAndFlush(first)).thenAnswer(invocation -> {
+            saving.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return first;
+        });
+        Mockito.when(repository.saveAndFlush(otherBook)).thenReturn(otherBook);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<Loan> pending = executor.submit(() -> service.save(first));
+            saving.await(5, TimeUnit.SECONDS);
+
+            //execucao
+            Loan other = service.save(otherBook);
+            Throwable busy = Assertions.catchThrowable(() -> service.save(sameBook));
+            release.countDown();
+
+            //verificacao
+            assertThat(other).isSameAs(otherBook);
+            assertThat(busy).isInstanceOf(BusinessException.class).hasMessage("book loan in progress, try again");
+            assertThat(pending.get(5, TimeUnit.SECONDS)).isSameAs(first);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("devolve em lote por id e isbn com um update por lote")
+    public void returnLoansTest(){
+        //cenario
+        service = new LoanServiceImpl(repository, 2, 100);
+        Mockito.when(repository.findActiveByIsbnIn(Arrays.asList("789", "000")))
+                .thenReturn(Collections.singletonList(status(4L, "789", false)));
+        Mockito.when(repository.findStatusByIdIn(Arrays.asList(1L, 2L)))
+                .thenReturn(Arrays.asList(status(1L, "123", false), status(2L, "456", true)));
+        Mockito.when(repository.findStatusByIdIn(Arrays.asList(3L, 4L)))
+                .thenReturn(Collections.singletonList(status(4L, "789", false)));
+        Mockito.when(repository.lockOpenIdsIn(Mockito.anyCollection())).thenAnswer(invocation -> new ArrayList<>(invocation.getArgument(0)));
+        Mockito.when(repository.markReturned(Mockito.anyCollection())).thenAnswer(invocation -> invocation.<Collection<?>>getArgument(0).size());
+
+        //execucao
+        List<LoanReturnOutcome> outcomes = service.returnLoans(Arrays.asList(1L, 2L, 3L, 1L), Arrays.asList("789", "000"));
+
+        //verificacao
+        assertThat(outcomes).containsExactly(
+                new LoanReturnOutcome(1L, "123", LoanReturnOutcome.Status.RETURNED),
+                new LoanReturnOutcome(2L, "456", LoanReturnOutcome.Status.ALREADY_RETURNED),
+                new LoanReturnOutcome(3L, null, LoanReturnOutcome.Status.NOT_FOUND),
+                new LoanReturnOutcome(4L, "789", LoanReturnOutcome.Status.RETURNED),
+                new LoanReturnOutcome(null, "000", LoanReturnOutcome.Status.NOT_FOUND));
+        Mockito.verify(repository).markReturned(Collections.singleton(1L));
+        Mockito.verify(repository).markReturned(Collections.singleton(4L));
+        Mockito.verify(repository, Mockito.times(2)).markReturned(Mockito.any());
+        Mockito.verify(repository, Mockito.never()).findAllById(Mockito.any());
+    }
+
+    @Test
+    @DisplayName("devolucao em lote: emprestimo pedido por id e isbn devolve uma vez, concorrente fica como ja devolvido")
+    public void returnLoansOnceTest(){
+        //cenario: o 2 estava aberto na leitura, mas outra devolucao travou e gravou antes
+        service = new LoanServiceImpl(repository, 10, 100);
+        Mockito.when(repository.findActiveByIsbnIn(Collections.singletonList("123")))
+                .thenReturn(Collections.singletonList(status(1L, "123", false)));
+        Mockito.when(repository.findStatusByIdIn(Arrays.asList(1L, 2L)))
+                .thenReturn(Arrays.asList(status(1L, "123", false), status(2L, "456", false)));
+        Mockito.when(repository.lockOpenIdsIn(Arrays.asList(1L, 2L))).thenReturn(Collections.singletonList(1L));
+        Mockito.when(repository.markReturned(Collections.singleton(1L))).thenReturn(1);
+
+        //execucao
+        List<LoanReturnOutcome> outcomes = service.returnLoans(Arrays.asList(1L, 2L), Collections.singletonList("123"));
+
+        //verificacao
+        assertThat(outcomes).containsExactly(
+                new LoanReturnOutcome(1L, "123", LoanReturnOutcome.Status.RETURNED),
+                new LoanReturnOutcome(2L, "456", LoanReturnOutcome.Status.ALREADY_RETURNED),
+                new LoanReturnOutcome(1L, "123", LoanReturnOutcome.Status.RETURNED));
+        Mockito.verify(repository, Mockito.times(1)).markReturned(Mockito.any());
+    }
+
+    @Test
+    @DisplayName("erro ao devolver lote acima do limite")
+    public void returnLoansLimitTest(){
+        service = new LoanServiceImpl(repository, 2, 2);
+
+        Throwable exception = Assertions.catchThrowable(() ->
+                service.returnLoans(Arrays.asList(1L, 2L), Collections.singletonList("123")));
+
+        assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("no máximo 2 empréstimos por devolução");
+    }
+
+    private static LoanStatus status(Long id, String isbn, boolean returned) {
+        return new LoanStatus() {
+            public Long getId() { return id; }
+            public String getIsbn() { return isbn; }
+            public Boolean getReturned() { return returned; }
+        };
+    }
+}
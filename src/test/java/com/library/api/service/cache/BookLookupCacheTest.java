@@ -0,0 +1,154 @@
+package com.library.api.service.cache;
+
+import com.library.api.model.Book;
+import com.library.api.model.repository.BookRepository;
+import com.library.api.service.event.BookChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookLookupCacheTest {
+
+    BookLookupCache cache;
+    SimpleMeterRegistry meterRegistry;
+
+    @MockBean
+    BookRepository repository;
+
+    @BeforeEach
+    public void setUp(){
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new BookLookupCache(repository, meterRegistry, 100, Duration.ofMinutes(10), Duration.ofMinutes(1));
+    }
+
+    @Test
+    @DisplayName("consulta o banco uma vez por id e devolve copias")
+    public void findByIdTest(){
+        //cenario
+        Mockito.when(repository.findById(1L))
+                .thenReturn(Optional.of(Book.builder().id(1L).title("as aventuras").author("renato").isbn("123").build()));
+
+        //execucao
+        Book first = cache.findById(1L).get();
+        first.setTitle("alterado");
+        Book second = cache.findById(1L).get();
+
+        //verificacao
+        assertThat(second.getTitle()).isEqualTo("as aventuras");
+        assertThat(second).isNotSameAs(first);
+        Mockito.verify(repository, Mockito.times(1)).findById(1L);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "books.by-id").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "books.by-id").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("guarda isbn inexistente ate um livro ser criado com ela")
+    public void negativeLookupTest(){
+        //cenario
+        Book book = Book.builder().id(1L).title("as aventuras").author("renato").isbn("123").build();
+        Mockito.when(repository.findByIsbn("123")).thenReturn(Optional.empty());
+
+        //execucao
+        assertThat(cache.findByIsbn("123")).isEmpty();
+        assertThat(cache.findByIsbn("123")).isEmpty();
+        Mockito.verify(repository, Mockito.times(1)).findByIsbn("123");
+
+        Mockito.when(repository.findByIsbn("123")).thenReturn(Optional.of(book));
+        Mockito.when(repository.findById(1L)).thenReturn(Optional.of(book));
+        cache.onBookChanged(BookChangedEvent.created(book));
+
+        //verificacao
+        assertThat(cache.findByIsbn("123")).map(Book::getId).hasValue(1L);
+    }
+
+    @Test
+    @DisplayName("update e delete invalidam o livro")
+    public void invalidateTest(){
+        //cenario
+        Mockito.when(repository.findById(1L))
+                .thenReturn(Optional.of(Book.builder().id(1L).title("as aventuras").author("renato").isbn("123").build()));
+        cache.findById(1L);
+
+        //execucao
+        Mockito.when(repository.findById(1L))
+                .thenReturn(Optional.of(Book.builder().id(1L).title("novo titulo").author("renato").isbn("123").build()));
+        cache.onBookChanged(BookChangedEvent.updated(Book.builder().id(1L).title("novo titulo").build()));
+        Optional<Book> updated = cache.findById(1L);
+
+        Mockito.when(repository.findById(1L)).thenReturn(Optional.empty());
+        cache.onBookChanged(BookChangedEvent.deleted(Book.builder().id(1L).build()));
+        Optional<Book> deleted = cache.findById(1L);
+
+        //verificacao
+        assertThat(updated).map(Book::getTitle).hasValue("novo titulo");
+        assertThat(deleted).isEmpty();
+    }
+
+    @Test
+    @DisplayName("percebe isbn alterada depois de guardada")
+    public void isbnChangedTest(){
+        //cenario
+        Mockito.when(repository.findByIsbn("123"))
+                .thenReturn(Optional.of(Book.builder().id(1L).isbn("123").build()));
+        Mockito.when(repository.findById(1L))
+                .thenReturn(Optional.of(Book.builder().id(1L).isbn("123").build()));
+        cache.findByIsbn("123");
+
+        //execucao
+        Mockito.when(repository.findByIsbn("123")).thenReturn(Optional.empty());
+        Mockito.when(repository.findById(1L))
+                .thenReturn(Optional.of(Book.builder().id(1L).isbn("999").build()));
+        cache.onBookChanged(BookChangedEvent.updated(Book.builder().id(1L).isbn("999").build()));
+
+        //verificacao
+        assertThat(cache.findByIsbn("123")).isEmpty();
+        assertThat(cache.findById(1L)).map(Book::getIsbn).hasValue("999");
+    }
+
+    @Test
+    @DisplayName("consulta em lote so carrega do banco as chaves fora do cache")
+    public void findAllTest(){
+        //cenario
+        Book first = Book.builder().id(1L).title("as aventuras").isbn("123").build();
+        Book second = Book.builder().id(2L).title("o livro").isbn("456").build();
+        Mockito.when(repository.findById(1L)).thenReturn(Optional.of(first));
+        cache.findById(1L);
+        List<Collection<Long>> idLoads = new ArrayList<>();
+        List<Collection<String>> isbnLoads = new ArrayList<>();
+
+        //execucao
+        Map<Long, Book> byId = cache.findAllById(Arrays.asList(1L, 2L, 3L), ids -> {
+            idLoads.add(new ArrayList<>(ids));
+            return Collections.singletonList(second);
+        });
+        Map<String, Book> byIsbn = cache.findAllByIsbn(Arrays.asList("123", "456", "789"), isbns -> {
+            isbnLoads.add(new ArrayList<>(isbns));
+            return Arrays.asList(first, second);
+        }, ids -> {
+            idLoads.add(new ArrayList<>(ids));
+            return Collections.emptyList();
+        });
+
+        //verificacao
+        assertThat(byId).containsOnlyKeys(1L, 2L);
+        assertThat(byIsbn).containsOnlyKeys("123", "456");
+        assertThat(idLoads).containsExactly(Arrays.asList(2L, 3L));
+        assertThat(isbnLoads).hasSize(1);
+        assertThat(isbnLoads.get(0)).containsExactlyInAnyOrder("123", "456", "789");
+    }
+}
@@ -0,0 +1,97 @@
+package com.library.api.service.coalesce;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class SingleFlightTest {
+
+    static final int THREADS = 8;
+
+    SimpleMeterRegistry meterRegistry;
+    SingleFlight<String, StringBuilder> flights;
+
+    @BeforeEach
+    public void setUp(){
+        meterRegistry = new SimpleMeterRegistry();
+        flights = new SingleFlight<>("books.test", meterRegistry, value -> new StringBuilder(value));
+    }
+
+    @Test
+    @DisplayName("chamadas simultâneas da mesma chave executam uma vez e os followers recebem cópias")
+    public void coalesceTest() throws Exception {
+        //cenario
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<StringBuilder>> results = new ArrayList<>();
+
+        //execucao
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> flights.execute("123", () -> {
+                    executions.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new StringBuilder("as aventuras");
+                })));
+            }
+            //todos os followers ja chegaram quando o leader termina
+            while (meterRegistry.get("coalescing.calls").tag("role", "follower").functionCounter().count() < THREADS - 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<StringBuilder> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS).toString()).isEqualTo("as aventuras");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //verificacao
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(results.get(0).get()).isNotSameAs(results.get(1).get());
+        assertThat(meterRegistry.get("coalescing.calls").tag("role", "leader").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("coalescing.ratio").tag("operation", "books.test").gauge().value())
+                .isEqualTo((double) (THREADS - 1) / THREADS);
+    }
+
+    @Test
+    @DisplayName("chamadas depois do fim executam de novo e erros não ficam guardados")
+    public void noCachingTest(){
+        //cenario
+        AtomicInteger executions = new AtomicInteger();
+
+        //execucao
+        Throwable exception = catchThrowable(() -> flights.execute("123", () -> {
+            executions.incrementAndGet();
+            throw new IllegalStateException("banco fora");
+        }));
+        StringBuilder first = flights.execute("123", () -> {
+            executions.incrementAndGet();
+            return new StringBuilder("a");
+        });
+        StringBuilder second = flights.execute("123", () -> {
+            executions.incrementAndGet();
+            return new StringBuilder("b");
+        });
+
+        //verificacao
+        assertThat(exception).isInstanceOf(IllegalStateException.class).hasMessage("banco fora");
+        assertThat(first.toString()).isEqualTo("a");
+        assertThat(second.toString()).isEqualTo("b");
+        assertThat(executions.get()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,46 @@
+package com.library.api.service.lock;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KeyedLocksTest {
+
+    KeyedLocks locks = new KeyedLocks();
+
+    @Test
+    @DisplayName("chaves diferentes nao se bloqueiam e o unlock libera a entrada")
+    public void tryLockTest(){
+        //execucao
+        boolean first = locks.tryLock(1L);
+        boolean again = locks.tryLock(1L);
+        boolean other = locks.tryLock(2833L);
+
+        //verificacao
+        assertThat(first).isTrue();
+        assertThat(again).isFalse();
+        assertThat(other).isTrue();
+        locks.unlock(1L);
+        locks.unlock(2833L);
+        assertThat(locks.size()).isZero();
+        assertThat(locks.tryLock(1L)).isTrue();
+    }
+
+    @Test
+    @DisplayName("so quem segura o lock pode liberar")
+    public void unlockByOwnerTest() throws Exception{
+        //cenario
+        locks.tryLock(1L);
+
+        //execucao
+        Throwable exception = CompletableFuture.supplyAsync(() -> Assertions.catchThrowable(() -> locks.unlock(1L))).get();
+
+        //verificacao
+        assertThat(exception).isInstanceOf(IllegalMonitorStateException.class);
+        assertThat(locks.tryLock(1L)).isFalse();
+    }
+}
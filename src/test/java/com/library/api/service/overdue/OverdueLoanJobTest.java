@@ -0,0 +1,209 @@
+package com.library.api.service.overdue;
+
+import com.library.api.model.Book;
+import com.library.api.model.JobCheckpoint;
+import com.library.api.model.Loan;
+import com.library.api.model.repository.JobCheckpointRepository;
+import com.library.api.model.repository.LoanRepository;
+import com.library.api.model.repository.OverdueLoan;
+import com.library.api.service.event.LoansOverdueEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class OverdueLoanJobTest {
+
+    static final LocalDate TODAY = LocalDate.of(2020, 5, 30);
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    JobCheckpointRepository checkpointRepository;
+
+    SimpleMeterRegistry meterRegistry;
+    List<Long> processed;
+    List<OverdueLoanJob> jobs;
+    List<Long> overdueIds;
+
+    @BeforeEach
+    public void setUp(){
+        meterRegistry = new SimpleMeterRegistry();
+        processed = Collections.synchronizedList(new ArrayList<>());
+        jobs = new ArrayList<>();
+        overdueIds = new ArrayList<>();
+
+        //7 atrasados (loan-days = 30), 1 devolvido e 1 no prazo
+        for (int i = 0; i < 9; i++) {
+            Book book = entityManager.persist(Book.builder().isbn("isbn " + i).title("t").author("a").build());
+            LocalDate loanDate = i < 8 ? TODAY.minusDays(40 + (i % 3)) : TODAY.minusDays(5);
+            Loan loan = entityManager.persist(Loan.builder().book(book).customer("cliente " + i)
+                    .loanDate(loanDate).returned(i == 7).build());
+            if (i < 7) {
+                overdueIds.add(loan.getId());
+            }
+        }
+        entityManager.flush();
+    }
+
+    @AfterEach
+    public void tearDown(){
+        jobs.forEach(OverdueLoanJob::shutdown);
+    }
+
+    @Test
+    @DisplayName("processa todos os atrasados em lotes, marca os emprestimos e conclui o checkpoint")
+    public void runTest(){
+        //execucao
+        long count = job(event -> event.getLoans().forEach(loan -> processed.add(loan.getId()))).run(TODAY);
+
+        //verificacao
+        assertThat(count).isEqualTo(7);
+        assertThat(processed).containsExactlyInAnyOrderElementsOf(overdueIds);
+        JobCheckpoint checkpoint = checkpointRepository.findById(OverdueLoanJob.NAME).get();
+        assertThat(checkpoint.isFinished()).isTrue();
+        assertThat(checkpoint.getProcessed()).isEqualTo(7);
+        assertThat(checkpoint.getCutoff()).isEqualTo(TODAY.minusDays(30));
+        assertThat(checkpoint.getLockedUntil()).isNull();
+        assertThat(overdueFlags()).containsExactlyInAnyOrderElementsOf(overdueIds);
+        assertThat(meterRegistry.get("loans.overdue.run").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("loans.overdue.lag.seconds").gauge().value()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("nova execucao nao processa de novo os emprestimos ja marcados")
+    public void secondRunTest(){
+        //cenario
+        job(event -> { }).run(TODAY);
+
+        //execucao
+        long count = job(event -> event.getLoans().forEach(loan -> processed.add(loan.getId()))).run(TODAY.plusDays(1));
+
+        //verificacao
+        assertThat(count).isZero();
+        assertThat(processed).isEmpty();
+        JobCheckpoint checkpoint = checkpointRepository.findById(OverdueLoanJob.NAME).get();
+        assertThat(checkpoint.isFinished()).isTrue();
+        assertThat(checkpoint.getCutoff()).isEqualTo(TODAY.plusDays(1).minusDays(30));
+    }
+
+    @Test
+    @DisplayName("nao executa enquanto outra instancia tem o lease do checkpoint")
+    public void leaseTest(){
+        //cenario
+        checkpointRepository.save(JobCheckpoint.builder().name(OverdueLoanJob.NAME).cutoff(TODAY.minusDays(30))
+                .owner("outra instancia").lockedUntil(LocalDateTime.now().plusMinutes(5)).build());
+
+        //execucao
+        long count = job(event -> event.getLoans().forEach(loan -> processed.add(loan.getId()))).run(TODAY);
+
+        //verificacao
+        assertThat(count).isEqualTo(-1);
+        assertThat(processed).isEmpty();
+        assertThat(overdueFlags()).isEmpty();
+        assertThat(checkpointRepository.findById(OverdueLoanJob.NAME).get().getOwner()).isEqualTo("outra instancia");
+    }
+
+    @Test
+    @DisplayName("lease expirado de outra instancia e retomado")
+    public void expiredLeaseTest(){
+        //cenario
+        checkpointRepository.save(JobCheckpoint.builder().name(OverdueLoanJob.NAME).cutoff(TODAY.minusDays(30))
+                .owner("outra instancia").lockedUntil(LocalDateTime.now().minusMinutes(1)).build());
+
+        //execucao
+        long count = job(event -> { }).run(TODAY);
+
+        //verificacao
+        assertThat(count).isEqualTo(7);
+        JobCheckpoint checkpoint = checkpointRepository.findById(OverdueLoanJob.NAME).get();
+        assertThat(checkpoint.getOwner()).isNotEqualTo("outra instancia");
+        assertThat(checkpoint.getLockedUntil()).isNull();
+    }
+
+    @Test
+    @DisplayName("retoma do checkpoint de uma execucao interrompida")
+    public void resumeTest(){
+        //cenario
+        List<OverdueLoan> all = loanRepository.findOverdue(TODAY.minusDays(30),
+                PageRequest.of(0, 10));
+        OverdueLoan last = all.get(2);
+        checkpointRepository.save(JobCheckpoint.builder().name(OverdueLoanJob.NAME).cutoff(TODAY.minusDays(30))
+                .lastLoanDate(last.getLoanDate()).lastId(last.getId()).processed(3).build());
+
+        //execucao
+        long count = job(event -> event.getLoans().forEach(loan -> processed.add(loan.getId()))).run(TODAY);
+
+        //verificacao
+        assertThat(count).isEqualTo(4);
+        assertThat(processed).containsExactlyInAnyOrderElementsOf(
+                all.subList(3, 7).stream().map(OverdueLoan::getId).collect(Collectors.toList()));
+        assertThat(checkpointRepository.findById(OverdueLoanJob.NAME).get().getProcessed()).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("falha num lote mantem o checkpoint no ultimo lote concluido")
+    public void failedChunkTest(){
+        //cenario
+        List<OverdueLoan> all = loanRepository.findOverdue(TODAY.minusDays(30),
+                PageRequest.of(0, 10));
+        Long failingId = all.get(4).getId();
+
+        //execucao
+        Throwable exception = Assertions.catchThrowable(() -> job(event -> {
+            if (event.getLoans().stream().anyMatch(loan -> loan.getId().equals(failingId))) {
+                throw new IllegalStateException("falha");
+            }
+        }).run(TODAY));
+
+        //verificacao: lotes de 2, o terceiro falha
+        assertThat(exception).isInstanceOf(IllegalStateException.class);
+        JobCheckpoint checkpoint = checkpointRepository.findById(OverdueLoanJob.NAME).get();
+        assertThat(checkpoint.isFinished()).isFalse();
+        assertThat(checkpoint.getLockedUntil()).isNull();
+        assertThat(checkpoint.getProcessed()).isLessThanOrEqualTo(4);
+        assertThat(overdueFlags()).hasSize((int) checkpoint.getProcessed());
+        if (checkpoint.getLastId() != null) {
+            assertThat(all.stream().map(OverdueLoan::getId).collect(Collectors.toList()).indexOf(checkpoint.getLastId()))
+                    .isLessThan(4);
+        }
+    }
+
+    private List<Long> overdueFlags() {
+        return loanRepository.findAll().stream().filter(Loan::isOverdue).map(Loan::getId).collect(Collectors.toList());
+    }
+
+    private OverdueLoanJob job(Consumer<LoansOverdueEvent> listener) {
+        ApplicationEventPublisher publisher = event -> listener.accept((LoansOverdueEvent) event);
+        OverdueLoanJob job = new OverdueLoanJob(loanRepository, checkpointRepository, publisher, meterRegistry, 2, 2, 30);
+        jobs.add(job);
+        return job;
+    }
+}
@@ -0,0 +1,110 @@
+package com.library.api.service.search;
+
+import com.library.api.model.Book;
+import com.library.api.model.repository.BookRepository;
+import com.library.api.service.event.BookChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookSearchIndexTest {
+
+    BookSearchIndex index;
+
+    @MockBean
+    BookRepository repository;
+
+    @BeforeEach
+    public void setUp(){
+        Mockito.when(repository.findByIdGreaterThanOrderByIdAsc(Mockito.eq(0L), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(
+                        Book.builder().id(1L).title("As Aventuras").author("Renato").isbn("123").build(),
+                        Book.builder().id(2L).title("Aventuras no Mar").author("Maria").isbn("456").build(),
+                        Book.builder().id(3L).title("O Livro").author("Renato Souza").isbn("789").build()));
+        Mockito.when(repository.findByIdGreaterThanOrderByIdAsc(Mockito.eq(3L), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+
+        index = new BookSearchIndex(repository, SearchMode.INDEX, 3);
+        index.warmup();
+    }
+
+    @Test
+    @DisplayName("busca por substring ignorando caixa")
+    public void searchIgnoreCaseTest(){
+        Optional<long[]> ids = index.search(Book.builder().title("AVENTURA").build());
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(ids).isPresent();
+        assertThat(ids.get()).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("combina os campos do filtro")
+    public void searchManyFieldsTest(){
+        long[] ids = index.search(Book.builder().title("ventura").author("renato").build()).get();
+
+        assertThat(ids).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("confere termos curtos nos candidatos")
+    public void searchShortTermTest(){
+        long[] ids = index.search(Book.builder().author("renato").isbn("89").build()).get();
+
+        assertThat(ids).containsExactly(3L);
+    }
+
+    @Test
+    @DisplayName("nao atende filtro sem termo de 3 caracteres")
+    public void notIndexableTest(){
+        assertThat(index.search(Book.builder().title("as").build())).isEmpty();
+        assertThat(index.search(new Book())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("mantem o indice atualizado com save, update e delete")
+    public void applyChangesTest(){
+        index.onBookChanged(BookChangedEvent.created(Book.builder().id(4L).title("Mar Aberto").author("Ana").isbn("000").build()));
+        index.onBookChanged(BookChangedEvent.updated(Book.builder().id(2L).title("Terra Firme").author("Maria").isbn("456").build()));
+        index.onBookChanged(BookChangedEvent.deleted(Book.builder().id(1L).build()));
+
+        assertThat(index.search(Book.builder().title("mar").build()).get()).containsExactly(4L);
+        assertThat(index.search(Book.builder().title("aventura").build()).get()).isEmpty();
+        assertThat(index.search(Book.builder().isbn("456").build()).get()).containsExactly(2L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("update que limpa um campo tira os termos antigos do indice")
+    public void clearedFieldTest(){
+        index.onBookChanged(BookChangedEvent.updated(Book.builder().id(2L).title("Terra Firme").isbn("456").build()));
+
+        assertThat(index.search(Book.builder().author("maria").build()).get()).isEmpty();
+        assertThat(index.search(Book.builder().title("firme").build()).get()).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("modo EXAMPLE nao usa o indice")
+    public void disabledTest(){
+        BookSearchIndex disabled = new BookSearchIndex(repository, SearchMode.EXAMPLE, 3);
+        disabled.warmupAsync();
+
+        assertThat(disabled.isReady()).isFalse();
+        Mockito.verify(repository, Mockito.times(1))
+                .findByIdGreaterThanOrderByIdAsc(Mockito.eq(0L), Mockito.any(Pageable.class));
+    }
+}
@@ -0,0 +1,154 @@
+package com.library.api.service.writebehind;
+
+import com.library.api.exceptions.BusinessException;
+import com.library.api.model.Book;
+import com.library.api.model.Loan;
+import com.library.api.model.repository.LoanBatchWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class LoanWriteBehindQueueTest {
+
+    LoanWriteBehindQueue queue;
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @MockBean
+    LoanBatchWriter writer;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("grava a fila em lotes de no máximo max-batch itens")
+    @SuppressWarnings("unchecked")
+    public void batchTest() throws Exception {
+        //cenario
+        List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong ids = new AtomicLong();
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            List<Loan> loans = invocation.getArgument(0);
+            loans.forEach(loan -> loan.setId(ids.incrementAndGet()));
+            batches.add(loans.size());
+            return null;
+        }).when(writer).insertAll(Mockito.anyList());
+        queue = new LoanWriteBehindQueue(writer, meterRegistry, LoanWriteMode.WRITE_BEHIND, 100, 4, Duration.ofMillis(50));
+
+        //execucao
+        List<CompletableFuture<Loan>> futures = new ArrayList<>();
+        for (long bookId = 1; bookId <= 10; bookId++) {
+            futures.add(queue.submit(loanOf(bookId)));
+        }
+        release.countDown();
+        for (CompletableFuture<Loan> future : futures) {
+            assertThat(future.get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        }
+        awaitFlushed(10);
+
+        //verificacao
+        assertThat(batches).allMatch(size -> size <= 4);
+        assertThat(batches.stream().mapToInt(Integer::intValue).sum()).isEqualTo(10);
+        assertThat(meterRegistry.get("loans.writebehind.batch.size").summary().count()).isEqualTo(batches.size());
+        assertThat(meterRegistry.get("loans.writebehind.flush").timer().count()).isEqualTo(batches.size());
+        assertThat(meterRegistry.get("loans.writebehind.queue.depth").gauge().value()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("lote com erro e regravado item a item e so o item ruim falha")
+    @SuppressWarnings("unchecked")
+    public void failedBatchTest() throws Exception {
+        //cenario
+        Mockito.doAnswer(invocation -> {
+            List<Loan> loans = invocation.getArgument(0);
+            for (Loan loan : loans) {
+                if (loan.getActiveBookId() == 2L) {
+                    throw new DataIntegrityViolationException("uk_loan_active_book");
+                }
+            }
+            loans.forEach(loan -> loan.setId(loan.getActiveBookId()));
+            return null;
+        }).when(writer).insertAll(Mockito.anyList());
+        queue = new LoanWriteBehindQueue(writer, meterRegistry, LoanWriteMode.WRITE_BEHIND, 100, 10, Duration.ofMillis(50));
+
+        //execucao
+        CompletableFuture<Loan> first = queue.submit(loanOf(1L));
+        CompletableFuture<Loan> second = queue.submit(loanOf(2L));
+        CompletableFuture<Loan> third = queue.submit(loanOf(3L));
+        Throwable exception = catchThrowable(() -> second.get(5, TimeUnit.SECONDS));
+
+        //verificacao
+        assertThat(first.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+        assertThat(third.get(5, TimeUnit.SECONDS).getId()).isEqualTo(3L);
+        assertThat(exception).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    @DisplayName("recusa segundo empréstimo do mesmo livro na fila e fila cheia")
+    public void rejectTest() throws Exception {
+        //cenario
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(writer).insertAll(Mockito.anyList());
+        queue = new LoanWriteBehindQueue(writer, meterRegistry, LoanWriteMode.WRITE_BEHIND, 1, 1, Duration.ofMillis(1));
+
+        //execucao
+        CompletableFuture<Loan> first = queue.submit(loanOf(1L));
+        Mockito.verify(writer, Mockito.timeout(5000)).insertAll(Mockito.anyList());
+        Throwable sameBook = catchThrowable(() -> queue.submit(loanOf(1L)));
+        queue.submit(loanOf(2L));
+        Throwable full = catchThrowable(() -> queue.submit(loanOf(3L)));
+        release.countDown();
+
+        //verificacao
+        assertThat(sameBook).isInstanceOf(BusinessException.class).hasMessage("book already borrowed");
+        assertThat(full).isInstanceOf(BusinessException.class).hasMessage("loan queue full, try again");
+        assertThat(first.get(5, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    //espera os lotes entrarem nas metricas do flush, nao so os futures dos chamadores
+    private void awaitFlushed(int loans) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("loans.writebehind.batch.size").summary().totalAmount() < loans
+                && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private Loan loanOf(Long bookId) {
+        return Loan.builder()
+                .book(Book.builder().id(bookId).build())
+                .customer("renato")
+                .loanDate(LocalDate.now())
+                .activeBookId(bookId)
+                .build();
+    }
+}